@@ -33,7 +33,9 @@ import dillon.gameAPI.networking.NetworkConnection;
 import dillon.gameAPI.networking.NetworkServer;
 import dillon.gameAPI.security.SecurityKey;
 import dillon.gameAPI.security.SecuritySystem;
+import dillon.gameAPI.utils.AssetCache;
 import dillon.gameAPI.utils.MainUtilities;
+import dillon.gameAPI.utils.SpriteAtlas;
 
 /**
  * This class is in control of the JFrame's canvas.
@@ -59,7 +61,7 @@ class CanvasController extends Canvas implements Runnable {
 
 	private long startTime, endTime; // Time when loop starts, ends.
 	private static int FPS = 30; // The target fps, defaults to 30.
-	private boolean running = false; // Tells if the loop should keep running.
+	private volatile boolean running = false; // Tells if the loop should keep running.
 	private volatile boolean paused = false; // Tells if the update method
 												// should occur.
 
@@ -77,6 +79,16 @@ class CanvasController extends Canvas implements Runnable {
 		running = false;
 	}
 
+	/**
+	 * Checks if the game loop is running.
+	 *
+	 * @return If it's running.
+	 * @since V2.2.2
+	 */
+	public synchronized boolean isRunning() {
+		return running;
+	}
+
 	/**
 	 * This adjusts the current FPS limit on the game.
 	 *
@@ -100,6 +112,54 @@ class CanvasController extends Canvas implements Runnable {
 		return FPS;
 	}
 
+	private volatile Core.LoopMode loopMode = Core.LoopMode.VARIABLE; // How the loop runs.
+	private volatile int tickRate = 0; // Updates per second in the fixed loop, 0 uses the FPS.
+	private static final int MAX_CATCH_UP = 5; // The most updates run before a render in the fixed loop.
+	private static final long SPIN_NANOS = 2000000L; // The end of a frame is spun instead of slept.
+	private volatile double interpolation = 1; // How far the render is between two updates.
+
+	/**
+	 * Sets how the game loop runs.
+	 *
+	 * @param mode
+	 *            The loop mode.
+	 * @since V2.2.2
+	 */
+	public void setLoopMode(final Core.LoopMode mode) {
+		loopMode = mode;
+	}
+
+	/**
+	 * Gets how the game loop runs.
+	 *
+	 * @return The loop mode.
+	 * @since V2.2.2
+	 */
+	public Core.LoopMode getLoopMode() {
+		return loopMode;
+	}
+
+	/**
+	 * Sets the updates per second in the fixed loop.
+	 *
+	 * @param rate
+	 *            The rate, 0 to use the FPS.
+	 * @since V2.2.2
+	 */
+	public void setTickRate(final int rate) {
+		tickRate = rate;
+	}
+
+	/**
+	 * Gets the updates per second in the fixed loop.
+	 *
+	 * @return The rate.
+	 * @since V2.2.2
+	 */
+	public int getTickRate() {
+		return tickRate > 0 ? tickRate : FPS;
+	}
+
 	/**
 	 * Gives back the canvas to draw on. This should not be used outside of this
 	 * package.
@@ -245,10 +305,26 @@ class CanvasController extends Canvas implements Runnable {
 			}
 		});
 		this.requestFocus(); // Get window focus.
+		while (running) {
+			if (loopMode == Core.LoopMode.FIXED) {
+				runFixed();
+			} else if (loopMode == Core.LoopMode.PIPELINED) {
+				runPipelined();
+			} else {
+				runVariable();
+			}
+		}
+	}
+
+	/**
+	 * Runs one update and one render each frame until the loop mode changes.
+	 */
+	private void runVariable() {
+		interpolation = 1;
 		long startSecond;
 		startSecond = System.currentTimeMillis();
 		int frames = 0;
-		while (running) {
+		while (running && loopMode == Core.LoopMode.VARIABLE) {
 			final int framesInSecond = 1000 / FPS; // The amount of frames in a
 													// second.
 			startTime = System.currentTimeMillis(); // The starting time in the
@@ -282,6 +358,154 @@ class CanvasController extends Canvas implements Runnable {
 		}
 	}
 
+	/**
+	 * Runs updates at a fixed rate and renders paced to the FPS until the loop
+	 * mode changes.
+	 */
+	private void runFixed() {
+		long previous = System.nanoTime();
+		long accumulator = 0; // Time that has not been simulated yet.
+		long nextFrame = previous;
+		while (running && loopMode == Core.LoopMode.FIXED) {
+			final long tickNanos = 1000000000L / getTickRate();
+			final long frameNanos = 1000000000L / FPS;
+			final long now = System.nanoTime();
+			startTime = System.currentTimeMillis();
+			accumulator += now - previous;
+			previous = now;
+			int steps = 0;
+			while (accumulator >= tickNanos && steps < MAX_CATCH_UP) {
+				sendTick();
+				accumulator -= tickNanos;
+				steps++;
+			}
+			if (accumulator >= tickNanos) { // Too far behind, drop the rest.
+				catchUp = (int) (accumulator / tickNanos);
+				Logger.getLogger("Core").warning("The game is behind by " + catchUp + " updates.");
+				accumulator %= tickNanos;
+			} else {
+				catchUp = 0;
+			}
+			interpolation = paused ? 1 : (double) accumulator / tickNanos;
+			sendRender();
+			endTime = System.currentTimeMillis();
+			nextFrame += frameNanos;
+			if (System.nanoTime() - nextFrame > frameNanos) { // Missed a frame, don't rush the next ones.
+				nextFrame = System.nanoTime();
+			}
+			sleepUntil(nextFrame);
+		}
+	}
+
+	/**
+	 * Runs updates on a separate thread and renders the newest finished update
+	 * on this one until the loop mode changes.
+	 */
+	private void runPipelined() {
+		final Thread t = new Thread(new updater());
+		t.setName("Engine Update");
+		t.start();
+		long nextFrame = System.nanoTime();
+		while (running && loopMode == Core.LoopMode.PIPELINED) {
+			final long frameNanos = 1000000000L / FPS;
+			final long tickNanos = 1000000000L / getTickRate();
+			startTime = System.currentTimeMillis();
+			WorldSnapshot.beginDraw();
+			try {
+				final long published = WorldSnapshot.getDrawTime();
+				if (published == -1 || paused) {
+					interpolation = 1;
+				} else {
+					interpolation = Math.min(1, (double) (System.nanoTime() - published) / tickNanos);
+				}
+				sendRender();
+			} finally {
+				WorldSnapshot.endDraw();
+			}
+			endTime = System.currentTimeMillis();
+			nextFrame += frameNanos;
+			if (System.nanoTime() - nextFrame > frameNanos) { // Missed a frame, don't rush the next ones.
+				nextFrame = System.nanoTime();
+			}
+			sleepUntil(nextFrame);
+		}
+		t.interrupt();
+		try {
+			t.join();
+		} catch (final InterruptedException e) {
+		}
+		WorldSnapshot.reset();
+	}
+
+	/**
+	 * Runs the updates of the pipelined loop at a fixed rate.
+	 *
+	 * @author Dillon - Github dg092099
+	 *
+	 */
+	class updater implements Runnable {
+		@Override
+		public void run() {
+			long nextTick = System.nanoTime();
+			int behind = 0;
+			while (running && loopMode == Core.LoopMode.PIPELINED) {
+				final long tickNanos = 1000000000L / getTickRate();
+				if (!paused) {
+					try {
+						WorldSnapshot.beginCapture();
+					} catch (final InterruptedException e) {
+						return;
+					}
+					try {
+						sendTick();
+					} finally {
+						WorldSnapshot.endCapture();
+					}
+				}
+				nextTick += tickNanos;
+				final long late = System.nanoTime() - nextTick;
+				if (late > tickNanos * MAX_CATCH_UP) { // Too far behind, drop the rest.
+					behind = (int) (late / tickNanos);
+					Logger.getLogger("Core").warning("The game is behind by " + behind + " updates.");
+					nextTick = System.nanoTime();
+				} else {
+					behind = 0;
+				}
+				catchUp = behind;
+				if (Thread.interrupted()) {
+					return;
+				}
+				sleepUntil(nextTick);
+			}
+		}
+	}
+
+	/**
+	 * Waits until the given time. Sleeps for most of it, then spins for the last
+	 * part so the wake up is on time.
+	 *
+	 * @param deadline
+	 *            The System.nanoTime to wait for.
+	 */
+	private static void sleepUntil(final long deadline) {
+		long remaining;
+		while ((remaining = deadline - System.nanoTime()) > SPIN_NANOS) {
+			final long millis = (remaining - SPIN_NANOS) / 1000000L;
+			if (millis <= 0) {
+				break;
+			}
+			try {
+				Thread.sleep(millis);
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+		while (deadline - System.nanoTime() > 0) {
+			Thread.yield();
+		}
+	}
+
 	private int catchUp = 0;
 
 	/**
@@ -304,6 +528,8 @@ class CanvasController extends Canvas implements Runnable {
 		EventSystem.broadcastMessage(new UpdateEvent(), UpdateEvent.class, key);
 		MainUtilities.executeQueue(key); // Executes things that are to run on
 											// engine thread.
+		NetworkServer.flush(); // Sends the messages batched during the tick.
+		NetworkConnection.flush();
 	}
 
 	/**
@@ -325,6 +551,7 @@ class CanvasController extends Canvas implements Runnable {
 								// was on.
 	private Image Splash; // The splash itself.
 	private static Image background; // The background image.
+	private static Image backgroundDrawn; // The background in a format that is quick to draw.
 
 	/**
 	 * This function has the screen rendered to.
@@ -348,10 +575,11 @@ class CanvasController extends Canvas implements Runnable {
 		graphics.fillRect(0, 0, Core.getWidth(), Core.getHeight()); // Fill
 																	// background
 		// Start Draw
-		if (background != null) { // Draw background image if applicable.
-			graphics.drawImage(background, 0, 0, null);
+		Image backgroundDrawn = CanvasController.backgroundDrawn;
+		if (backgroundDrawn != null) { // Draw background image if applicable.
+			graphics.drawImage(backgroundDrawn, 0, 0, null);
 		}
-		EventSystem.broadcastMessage(new RenderEvent(graphics), RenderEvent.class, key); // Render
+		EventSystem.broadcastMessage(new RenderEvent(graphics, interpolation), RenderEvent.class, key); // Render
 
 		if (showingSplash) {
 			splashCounter++; // To stop displaying splash after a while.
@@ -392,6 +620,7 @@ class CanvasController extends Canvas implements Runnable {
 	 */
 	public static void setBackgroundImage(final BufferedImage img) {
 		background = img;
+		backgroundDrawn = img != null ? SpriteAtlas.toCompatible(img) : null;
 	}
 
 	/**
@@ -465,6 +694,8 @@ class CanvasController extends Canvas implements Runnable {
 					pw.println(GuiSystem.getDebug());
 					pw.println(dillon.gameAPI.mapping.Camera.getDebug());
 					pw.println(MapManager.getDebug());
+					pw.println(AssetCache.getDebug());
+					pw.println(SpriteAtlas.getDebug());
 					pw.flush();
 					pw.println(NetworkConnection.getDebug());
 					pw.println(NetworkServer.getDebug());
@@ -503,6 +734,8 @@ class CanvasController extends Canvas implements Runnable {
 		data += String.format("%-20s %-20d\n", "Start Time: ", startTime);
 		data += String.format("%-20s %-20d\n", "End Time:", endTime);
 		data += String.format("%-20s %-20d\n", "FPS:", FPS);
+		data += String.format("%-20s %-20s\n", "Loop mode:", loopMode);
+		data += String.format("%-20s %-20d\n", "Tick rate:", getTickRate());
 		data += String.format("%-20s %-20s\n", "Running", running ? "Yes" : "No");
 		data += String.format("%-20s %-20s\n", "Paused", paused ? "Yes" : "No");
 		data += String.format("%-20s %-20s\n", "Showing Splash:", showingSplash ? "Yes" : "No");
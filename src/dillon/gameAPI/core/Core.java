@@ -39,7 +39,7 @@ public class Core {
 	private static String TITLE; // The game's title.
 	private static Image ICON; // The icon for the game.
 	private static JFrame frame; // The JFrame window.
-	public static final String ENGINE_VERSION = "v2.2.1"; // The engine's
+	public static final String ENGINE_VERSION = "v2.2.2"; // The engine's
 															// version.
 	public static int WIDTH, HEIGHT;
 
@@ -401,6 +401,87 @@ public class Core {
 		controller.setFps(fps);
 	}
 
+	/**
+	 * The ways that the game loop can run.
+	 *
+	 * @author Dillon - Github dg092099
+	 * @since V2.2.2
+	 *
+	 */
+	public static enum LoopMode {
+		/**
+		 * One update and one render each frame, catching up on missed updates once
+		 * a second.
+		 */
+		VARIABLE,
+		/**
+		 * Updates run at a fixed rate from a nanosecond clock, renders are paced to
+		 * the FPS and are told how far they are between two updates.
+		 */
+		FIXED,
+		/**
+		 * Like FIXED, but updates run on their own thread. Each update is copied
+		 * into a WorldSnapshot buffer and drawn while the next update runs.
+		 */
+		PIPELINED
+	}
+
+	/**
+	 * This method sets how the game loop runs.
+	 *
+	 * @param mode
+	 *            The loop mode.
+	 * @param k
+	 *            The security key.
+	 * @since V2.2.2
+	 */
+	public static void setLoopMode(final LoopMode mode, SecurityKey k) {
+		SecuritySystem.checkPermission(k, RequestedAction.SET_LOOP_MODE);
+		if (mode == null) {
+			throw new IllegalArgumentException("The loop mode must not be null.");
+		}
+		controller.setLoopMode(mode);
+	}
+
+	/**
+	 * Gets how the game loop runs.
+	 *
+	 * @return The loop mode.
+	 * @since V2.2.2
+	 */
+	public static LoopMode getLoopMode() {
+		return controller.getLoopMode();
+	}
+
+	/**
+	 * This method sets how many updates happen each second when the game loop
+	 * uses a fixed timestep.
+	 *
+	 * @param rate
+	 *            The updates per second, 0 to use the FPS.
+	 * @param k
+	 *            The security key.
+	 * @since V2.2.2
+	 */
+	public static void setTickRate(final int rate, SecurityKey k) {
+		SecuritySystem.checkPermission(k, RequestedAction.SET_FPS);
+		if (rate < 0) {
+			throw new IllegalArgumentException("The tick rate must not be less than 0.");
+		}
+		controller.setTickRate(rate);
+	}
+
+	/**
+	 * Gets how many updates happen each second when the game loop uses a fixed
+	 * timestep.
+	 *
+	 * @return The updates per second.
+	 * @since V2.2.2
+	 */
+	public static int getTickRate() {
+		return controller.getTickRate();
+	}
+
 	/**
 	 * This method will change the color of the background on the game.
 	 *
@@ -445,6 +526,16 @@ public class Core {
 		return CanvasController.getFPS();
 	}
 
+	/**
+	 * Checks if the game loop is running.
+	 *
+	 * @return If it's running.
+	 * @since V2.2.2
+	 */
+	public static boolean isRunning() {
+		return controller != null && controller.isRunning();
+	}
+
 	/**
 	 * Sets the background image
 	 *
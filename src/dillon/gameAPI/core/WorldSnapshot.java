@@ -0,0 +1,154 @@
+package dillon.gameAPI.core;
+
+import dillon.gameAPI.mapping.Camera;
+
+/**
+ * This keeps track of the two buffers used when the game loop is pipelined.
+ * While one update is drawn from one buffer, the next update is copied into the
+ * other one. Anything that draws should copy what it needs into the capture
+ * buffer at the end of its update, and draw from the draw buffer when there is
+ * one.
+ *
+ * @author Dillon - Github dg092099
+ * @since V2.2.2
+ *
+ */
+public final class WorldSnapshot {
+	private static final Object lock = new Object(); // Guards the buffer indexes.
+	private static volatile int capturing = -1; // The buffer being written by the update thread.
+	private static volatile int drawing = -1; // The buffer being read by the render thread.
+	private static int published = -1; // The buffer with the newest complete update.
+	private static long updateCount = 0; // Updates captured so far.
+	private static final long[] frames = new long[2]; // The update each buffer holds.
+	private static final long[] times = new long[2]; // When each buffer was published.
+	private static final int[] cameraX = new int[2], cameraY = new int[2]; // The camera in each buffer.
+
+	private WorldSnapshot() {
+	}
+
+	/**
+	 * Picks the buffer that is not published to copy the next update into. Waits
+	 * if it is still being drawn.
+	 *
+	 * @throws InterruptedException
+	 *             If interrupted while waiting.
+	 */
+	static void beginCapture() throws InterruptedException {
+		synchronized (lock) {
+			int buffer = published == 0 ? 1 : 0;
+			while (drawing == buffer) {
+				lock.wait();
+			}
+			frames[buffer] = ++updateCount;
+			capturing = buffer;
+		}
+	}
+
+	/**
+	 * Publishes the buffer that was just captured so that the next render uses
+	 * it.
+	 */
+	static void endCapture() {
+		synchronized (lock) {
+			if (capturing == -1) {
+				return;
+			}
+			cameraX[capturing] = Camera.getXPos();
+			cameraY[capturing] = Camera.getYPos();
+			times[capturing] = System.nanoTime();
+			published = capturing;
+			capturing = -1;
+		}
+	}
+
+	/**
+	 * Locks the newest published buffer for drawing.
+	 */
+	static void beginDraw() {
+		synchronized (lock) {
+			drawing = published;
+		}
+	}
+
+	/**
+	 * Releases the buffer that was drawn.
+	 */
+	static void endDraw() {
+		synchronized (lock) {
+			drawing = -1;
+			lock.notifyAll();
+		}
+	}
+
+	/**
+	 * Forgets all buffers. Used when the pipelined loop stops.
+	 */
+	static void reset() {
+		synchronized (lock) {
+			capturing = -1;
+			drawing = -1;
+			published = -1;
+			lock.notifyAll();
+		}
+	}
+
+	/**
+	 * Gets when the buffer being drawn was published.
+	 *
+	 * @return The System.nanoTime, or -1 if nothing is being drawn.
+	 */
+	static long getDrawTime() {
+		int buffer = drawing;
+		return buffer == -1 ? -1 : times[buffer];
+	}
+
+	/**
+	 * Gets the buffer that the current update should be copied into.
+	 *
+	 * @return 0 or 1, or -1 if the loop is not pipelined.
+	 */
+	public static int getCaptureBuffer() {
+		return capturing;
+	}
+
+	/**
+	 * Gets the buffer that the current render should draw from.
+	 *
+	 * @return 0 or 1, or -1 if the live state should be drawn.
+	 */
+	public static int getDrawBuffer() {
+		return drawing;
+	}
+
+	/**
+	 * Gets the update that a buffer holds. Anything captured with a different
+	 * update number is stale.
+	 *
+	 * @param buffer
+	 *            The buffer.
+	 * @return The update number.
+	 */
+	public static long getFrame(int buffer) {
+		return frames[buffer];
+	}
+
+	/**
+	 * Gets the camera's x position to draw with.
+	 *
+	 * @return The x position.
+	 */
+	public static int getCameraX() {
+		int buffer = drawing;
+		return buffer == -1 ? Camera.getXPos() : cameraX[buffer];
+	}
+
+	/**
+	 * Gets the camera's y position to draw with.
+	 *
+	 * @return The y position.
+	 */
+	public static int getCameraY() {
+		int buffer = drawing;
+		return buffer == -1 ? Camera.getYPos() : cameraY[buffer];
+	}
+}
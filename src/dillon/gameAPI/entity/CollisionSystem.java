@@ -0,0 +1,490 @@
+package dillon.gameAPI.entity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import dillon.gameAPI.event.EEHandler;
+import dillon.gameAPI.event.EntityContactEvent;
+import dillon.gameAPI.event.EventSystem;
+import dillon.gameAPI.event.State;
+import dillon.gameAPI.event.UpdateEvent;
+import dillon.gameAPI.security.RequestedAction;
+import dillon.gameAPI.security.SecurityKey;
+import dillon.gameAPI.security.SecuritySystem;
+
+/**
+ * Finds the entities that overlap each other. Every update, after the entities
+ * move, each live entity is put in the cells of a uniform grid that its box
+ * covers, and only entities sharing a cell are compared, so the work follows
+ * how crowded the entities are rather than the square of how many there are.
+ * An EntityContactEvent is sent when two entities start touching, every update
+ * while they touch, and when they stop.
+ *
+ * @author Dillon - Github dg092099
+ * @since V2.2.2
+ */
+public final class CollisionSystem {
+	private static int cellSize = 64; // The width and height of a grid cell.
+	private static boolean stayEvents = true; // If STAY events are sent.
+	private static SecurityKey key;
+	private static EEHandler<UpdateEvent> updateHandler;
+	private static int nextId = 1; // For telling contacts apart.
+	private static long tick = 0; // The number of the last check.
+
+	// The entities and their boxes, rebuilt every update.
+	private static Entity[] entities = new Entity[256];
+	private static int[] ids = new int[256];
+	private static double[] boxes = new double[256 * 4]; // Left, top, right and bottom of
+	// each, together so one entity's box is read at once.
+	private static int[] cells = new int[256 * 4]; // The first and last cell column and row
+	// each box covers.
+	private static int count = 0;
+
+	// The grid, as a hash table from cell to a list of entries.
+	private static long[] cellKeys = new long[1024];
+	private static int[] cellHeads = new int[1024]; // The first entry in each cell, or -1.
+	private static int[] usedCells = new int[1024]; // The table slots in use.
+	private static int usedCount = 0;
+	private static int[] entryEntity = new int[512], entryNext = new int[512];
+	private static int entryCount = 0;
+
+	// The pairs touching, as a hash table by pair key. A key of 0 is an empty slot.
+	private static long[] contactKeys = new long[1024];
+	private static Entity[] contactA = new Entity[1024], contactB = new Entity[1024];
+	private static long[] contactSeen = new long[1024]; // The last check they touched in.
+	private static int contactCount = 0;
+	private static long[] endedKeys = new long[64];
+
+	private static final ArrayList<Entity> began = new ArrayList<Entity>(), stayed = new ArrayList<Entity>(),
+			ended = new ArrayList<Entity>(); // Pairs for this update's events, two entities each.
+	private static long checks = 0; // Box tests in the last check.
+	private static long lastPass = 0; // Nanoseconds the last check took.
+
+	static {
+		Arrays.fill(cellHeads, -1);
+	}
+
+	private CollisionSystem() {
+	}
+
+	/**
+	 * Starts checking for entities touching.
+	 *
+	 * @param k
+	 *            The security key.
+	 */
+	public static synchronized void start(SecurityKey k) {
+		SecuritySystem.checkPermission(k, RequestedAction.POST_EVENT);
+		if (updateHandler != null) {
+			return;
+		}
+		key = k;
+		EventSystem.addHandler(updateHandler = new EEHandler<UpdateEvent>() {
+			@Override
+			public void handle(UpdateEvent evt) {
+				check();
+			}
+
+			@Override
+			public int getPriority() {
+				return Integer.MAX_VALUE - 1; // After the entities have moved.
+			}
+		}, k);
+	}
+
+	/**
+	 * Stops checking. No END events are sent for the pairs still touching.
+	 *
+	 * @param k
+	 *            The security key.
+	 */
+	public static synchronized void stop(SecurityKey k) {
+		SecuritySystem.checkPermission(k, RequestedAction.POST_EVENT);
+		if (updateHandler == null) {
+			return;
+		}
+		EventSystem.removeHandler(updateHandler);
+		updateHandler = null;
+		Arrays.fill(contactKeys, 0);
+		Arrays.fill(contactA, null);
+		Arrays.fill(contactB, null);
+		contactCount = 0;
+		Arrays.fill(entities, null);
+	}
+
+	/**
+	 * Sets the size of the grid cells. About the size of a typical entity works
+	 * best.
+	 *
+	 * @param size
+	 *            The width and height of a cell, in pixels.
+	 * @param k
+	 *            The security key.
+	 */
+	public static synchronized void setCellSize(int size, SecurityKey k) {
+		SecuritySystem.checkPermission(k, RequestedAction.POST_EVENT);
+		if (size <= 0) {
+			throw new IllegalArgumentException("The cell size must be positive.");
+		}
+		cellSize = size;
+	}
+
+	/**
+	 * Sets if an event is sent every update for each pair still touching. With
+	 * many entities piled up, turning this off saves a lot of events.
+	 *
+	 * @param send
+	 *            If STAY events are sent.
+	 * @param k
+	 *            The security key.
+	 */
+	public static synchronized void setStayEvents(boolean send, SecurityKey k) {
+		SecuritySystem.checkPermission(k, RequestedAction.POST_EVENT);
+		stayEvents = send;
+	}
+
+	/**
+	 * Gets the pairs of entities that were touching at the last check.
+	 *
+	 * @return The pairs, each an array of two entities.
+	 */
+	public static synchronized ArrayList<Entity[]> getPairs() {
+		ArrayList<Entity[]> pairs = new ArrayList<Entity[]>(contactCount);
+		for (int slot = 0; slot < contactKeys.length; slot++) {
+			if (contactKeys[slot] != 0) {
+				pairs.add(new Entity[] { contactA[slot], contactB[slot] });
+			}
+		}
+		return pairs;
+	}
+
+	/**
+	 * Checks if two entities were touching at the last check.
+	 *
+	 * @param a
+	 *            One entity.
+	 * @param b
+	 *            The other.
+	 * @return If they were.
+	 */
+	public static synchronized boolean isTouching(Entity a, Entity b) {
+		if (a == null || b == null || a.contactId == 0 || b.contactId == 0) {
+			return false;
+		}
+		return contactKeys[findContact(pairKey(a.contactId, b.contactId))] != 0;
+	}
+
+	/**
+	 * Finds the pairs touching now, then sends the events.
+	 */
+	private static void check() {
+		SecurityKey k;
+		long start = System.nanoTime();
+		gather(); // Outside the lock, so it is never held while waiting on EntityManager's.
+		synchronized (CollisionSystem.class) {
+			tick++;
+			began.clear();
+			stayed.clear();
+			ended.clear();
+			findPairs();
+			removeEnded();
+			lastPass = System.nanoTime() - start;
+			k = key;
+		}
+		send(began, EntityContactEvent.ContactMode.BEGIN, k);
+		send(stayed, EntityContactEvent.ContactMode.STAY, k);
+		send(ended, EntityContactEvent.ContactMode.END, k);
+	}
+
+	/**
+	 * Copies the live entities and their boxes out of EntityManager.
+	 */
+	private static void gather() {
+		Arrays.fill(entities, 0, count, null);
+		count = 0;
+		State state = EventSystem.getState();
+		synchronized (EntityManager.class) {
+			for (EntityManager.Bucket b : EntityManager.getBuckets()) {
+				for (int i = 0; i < b.size; i++) {
+					Entity e = b.entities[i];
+					if (e.isDestroyed()) {
+						continue;
+					}
+					State in = e.getAppearsIn();
+					if (in != null && state != null && !state.equals(in)) {
+						continue; // Not in this state.
+					}
+					if (count == entities.length) {
+						growEntities(count * 2);
+					}
+					if (e.contactId == 0) {
+						e.contactId = nextId++;
+					}
+					double x = e.getX(), y = e.getY(), right = x + e.getWidth(), bottom = y + e.getHeight();
+					int b4 = count * 4;
+					entities[count] = e;
+					ids[count] = e.contactId;
+					boxes[b4] = x;
+					boxes[b4 + 1] = y;
+					boxes[b4 + 2] = right;
+					boxes[b4 + 3] = bottom;
+					cells[b4] = (int) Math.floor(x / cellSize);
+					cells[b4 + 1] = (int) Math.floor(y / cellSize);
+					cells[b4 + 2] = (int) Math.floor(right / cellSize);
+					cells[b4 + 3] = (int) Math.floor(bottom / cellSize);
+					count++;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Puts each entity in the cells its box covers, comparing it with the
+	 * entities already in each cell. A pair sharing several cells is only
+	 * counted in the first cell of the area where their boxes overlap.
+	 */
+	private static void findPairs() {
+		for (int i = 0; i < usedCount; i++) { // Empty the cells used last time.
+			cellHeads[usedCells[i]] = -1;
+		}
+		usedCount = 0;
+		entryCount = 0;
+		checks = 0;
+		int entries = 0;
+		for (int i = 0; i < count; i++) {
+			int c4 = i * 4;
+			entries += (cells[c4 + 2] - cells[c4] + 1) * (cells[c4 + 3] - cells[c4 + 1] + 1);
+		}
+		if (entries > entryEntity.length) {
+			entryEntity = new int[entries * 2];
+			entryNext = new int[entries * 2];
+		}
+		if (entries * 2 > cellHeads.length) { // Keep the table at most half full.
+			int capacity = Integer.highestOneBit(entries * 4);
+			cellKeys = new long[capacity];
+			cellHeads = new int[capacity];
+			Arrays.fill(cellHeads, -1);
+			usedCells = new int[capacity];
+		}
+		int mask = cellHeads.length - 1;
+		for (int i = 0; i < count; i++) {
+			int i4 = i * 4;
+			double left = boxes[i4], top = boxes[i4 + 1], right = boxes[i4 + 2], bottom = boxes[i4 + 3];
+			int firstX = cells[i4], firstY = cells[i4 + 1];
+			for (int cx = firstX; cx <= cells[i4 + 2]; cx++) {
+				for (int cy = firstY; cy <= cells[i4 + 3]; cy++) {
+					long cell = (long) cx << 32 | cy & 0xFFFFFFFFL;
+					int slot = hash(cell) & mask;
+					while (cellHeads[slot] != -1 && cellKeys[slot] != cell) {
+						slot = slot + 1 & mask;
+					}
+					if (cellHeads[slot] == -1) {
+						cellKeys[slot] = cell;
+						usedCells[usedCount++] = slot;
+					}
+					for (int entry = cellHeads[slot]; entry != -1; entry = entryNext[entry]) {
+						int j = entryEntity[entry];
+						int j4 = j * 4;
+						checks++;
+						if (left >= boxes[j4 + 2] || boxes[j4] >= right || top >= boxes[j4 + 3]
+								|| boxes[j4 + 1] >= bottom) {
+							continue;
+						}
+						if (cx != Math.max(firstX, cells[j4]) || cy != Math.max(firstY, cells[j4 + 1])) {
+							continue; // Counted in another cell.
+						}
+						touching(i, j);
+					}
+					entryEntity[entryCount] = i;
+					entryNext[entryCount] = cellHeads[slot];
+					cellHeads[slot] = entryCount++;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Records that two entities are touching.
+	 *
+	 * @param i
+	 *            One entity's index.
+	 * @param j
+	 *            The other's.
+	 */
+	private static void touching(int i, int j) {
+		long pair = pairKey(ids[i], ids[j]);
+		int slot = findContact(pair);
+		if (contactKeys[slot] == 0) {
+			if (ids[j] < ids[i]) {
+				int swap = i;
+				i = j;
+				j = swap;
+			}
+			contactKeys[slot] = pair;
+			contactA[slot] = entities[i];
+			contactB[slot] = entities[j];
+			contactSeen[slot] = tick;
+			began.add(entities[i]);
+			began.add(entities[j]);
+			if (++contactCount * 2 > contactKeys.length) {
+				growContacts();
+			}
+			return;
+		}
+		contactSeen[slot] = tick;
+		if (stayEvents) {
+			stayed.add(contactA[slot]);
+			stayed.add(contactB[slot]);
+		}
+	}
+
+	/**
+	 * Removes the pairs that didn't touch in this check.
+	 */
+	private static void removeEnded() {
+		int n = 0;
+		for (int slot = 0; slot < contactKeys.length; slot++) {
+			if (contactKeys[slot] != 0 && contactSeen[slot] != tick) {
+				if (n == endedKeys.length) {
+					endedKeys = Arrays.copyOf(endedKeys, n * 2);
+				}
+				endedKeys[n++] = contactKeys[slot];
+				ended.add(contactA[slot]);
+				ended.add(contactB[slot]);
+			}
+		}
+		for (int i = 0; i < n; i++) {
+			removeContact(findContact(endedKeys[i]));
+		}
+	}
+
+	/**
+	 * Finds the slot of a pair, or the empty slot where it would go.
+	 *
+	 * @param pair
+	 *            The pair key.
+	 * @return The slot.
+	 */
+	private static int findContact(long pair) {
+		int mask = contactKeys.length - 1;
+		int slot = (int) (pair ^ pair >>> 32) & mask;
+		while (contactKeys[slot] != 0 && contactKeys[slot] != pair) {
+			slot = slot + 1 & mask;
+		}
+		return slot;
+	}
+
+	/**
+	 * Empties a slot, moving back any later pairs that would be cut off from
+	 * their own slot by the gap.
+	 *
+	 * @param slot
+	 *            The slot.
+	 */
+	private static void removeContact(int slot) {
+		int mask = contactKeys.length - 1;
+		int hole = slot;
+		for (int i = hole + 1 & mask; contactKeys[i] != 0; i = i + 1 & mask) {
+			int home = (int) (contactKeys[i] ^ contactKeys[i] >>> 32) & mask;
+			boolean between = hole <= i ? hole < home && home <= i : hole < home || home <= i;
+			if (!between) { // Its home is at or before the hole.
+				contactKeys[hole] = contactKeys[i];
+				contactA[hole] = contactA[i];
+				contactB[hole] = contactB[i];
+				contactSeen[hole] = contactSeen[i];
+				hole = i;
+			}
+		}
+		contactKeys[hole] = 0;
+		contactA[hole] = null;
+		contactB[hole] = null;
+		contactCount--;
+	}
+
+	/**
+	 * Doubles the contact table.
+	 */
+	private static void growContacts() {
+		long[] keys = contactKeys;
+		Entity[] a = contactA, b = contactB;
+		long[] seen = contactSeen;
+		contactKeys = new long[keys.length * 2];
+		contactA = new Entity[keys.length * 2];
+		contactB = new Entity[keys.length * 2];
+		contactSeen = new long[keys.length * 2];
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] != 0) {
+				int slot = findContact(keys[i]);
+				contactKeys[slot] = keys[i];
+				contactA[slot] = a[i];
+				contactB[slot] = b[i];
+				contactSeen[slot] = seen[i];
+			}
+		}
+	}
+
+	/**
+	 * Sends an event for each contact.
+	 *
+	 * @param list
+	 *            The pairs, two entities each.
+	 * @param mode
+	 *            The kind of event.
+	 * @param k
+	 *            The security key.
+	 */
+	private static void send(ArrayList<Entity> list, EntityContactEvent.ContactMode mode, SecurityKey k) {
+		for (int i = 0; i < list.size(); i += 2) {
+			EventSystem.broadcastMessage(new EntityContactEvent(mode, list.get(i), list.get(i + 1)),
+					EntityContactEvent.class, k);
+		}
+	}
+
+	/**
+	 * Makes the key of a pair from the ids of its entities, the same in either
+	 * order. The ids are mixed, so the key can be used as its own hash.
+	 *
+	 * @param a
+	 *            One id.
+	 * @param b
+	 *            The other.
+	 * @return The key.
+	 */
+	private static long pairKey(int a, int b) {
+		long key = a < b ? (long) a << 32 | b & 0xFFFFFFFFL : (long) b << 32 | a & 0xFFFFFFFFL;
+		return key * 0x9E3779B97F4A7C15L; // Odd, so no two pairs get the same key, and
+		// only the pair of 0 and 0, which no entity has, gets 0.
+	}
+
+	private static int hash(long cell) {
+		long h = cell * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ h >>> 32);
+	}
+
+	/**
+	 * Makes room for more entities.
+	 *
+	 * @param capacity
+	 *            The new number of entities.
+	 */
+	private static void growEntities(int capacity) {
+		entities = Arrays.copyOf(entities, capacity);
+		ids = Arrays.copyOf(ids, capacity);
+		boxes = Arrays.copyOf(boxes, capacity * 4);
+		cells = Arrays.copyOf(cells, capacity * 4);
+	}
+
+	public static synchronized String getDebug() {
+		String data = "\n\ndillon.gameAPI.entity.CollisionSystem Debug:\n";
+		data += String.format("%-15s %-7s\n", "Key", "Value");
+		data += String.format("%-15s %-7s\n", "---", "-----");
+		data += String.format("%-15s %-7s\n", "Running:", updateHandler != null ? "Yes" : "No");
+		data += String.format("%-15s %-7d\n", "Cell Size:", cellSize);
+		data += String.format("%-15s %-7d\n", "Entities:", count);
+		data += String.format("%-15s %-7d\n", "Cells:", usedCount);
+		data += String.format("%-15s %-7d\n", "Box Tests:", checks);
+		data += String.format("%-15s %-7d\n", "Contacts:", contactCount);
+		data += String.format("%-15s %-7d\n", "Last Pass (us):", lastPass / 1000);
+		return data;
+	}
+}
@@ -6,16 +6,17 @@ import java.awt.Image;
 import java.awt.image.BufferedImage;
 import java.io.Serializable;
 
-import dillon.gameAPI.event.EEHandler;
+import dillon.gameAPI.core.WorldSnapshot;
 import dillon.gameAPI.event.EventSystem;
 import dillon.gameAPI.event.RenderEvent;
 import dillon.gameAPI.event.State;
-import dillon.gameAPI.event.UpdateEvent;
 import dillon.gameAPI.mapping.MapManager;
 import dillon.gameAPI.security.RequestedAction;
 import dillon.gameAPI.security.SecurityKey;
 import dillon.gameAPI.security.SecuritySystem;
 import dillon.gameAPI.utils.Animation;
+import dillon.gameAPI.utils.Sprite;
+import dillon.gameAPI.utils.SpriteAtlas;
 
 /**
  * This class stores the position, direction and sprite of an entity.
@@ -24,13 +25,13 @@ import dillon.gameAPI.utils.Animation;
  */
 public class Entity implements Serializable {
 	private static final long serialVersionUID = 1176042239171972455L;
-	private BufferedImage[] spr; // The sprite object for this entity.
+	private static final BufferedImage PLACEHOLDER = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB); // Shown
+	// for missing sprites. Shared, so it is only packed once.
+	private Sprite[] spr; // The sprite object for this entity, packed in an atlas.
 	private SecurityKey key;
 	private int frameNum = 0;
 	private int frameSpeed = 2;
 	private State appearsIn;
-	private final EEHandler<UpdateEvent> tickEvent;
-	private final EEHandler<RenderEvent> renderEvent;
 	private Animation playingAnimation;
 	private int zIndex = 0;
 	private int currentFrame = 0;
@@ -46,10 +47,14 @@ public class Entity implements Serializable {
 			throw new IllegalArgumentException("The animation must not be already finished.");
 		}
 		playingAnimation = a;
+		if (row >= 0) {
+			EntityStore.animating[row] = a != null;
+		}
 	}
 
 	/**
-	 * This method creates an entity.
+	 * This method creates an entity. The images are copied into a sprite atlas,
+	 * so drawing on them afterwards doesn't change the entity.
 	 *
 	 * @param sprite
 	 *            The images to use.
@@ -62,147 +67,402 @@ public class Entity implements Serializable {
 			throw new IllegalArgumentException("The sprite array must not be null. It can be an empty array.");
 		}
 		if (sprite.length == 0) {
-			BufferedImage img = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
 			sprite = new Image[1];
-			sprite[0] = img;
+			sprite[0] = PLACEHOLDER;
 		}
 		for (int i = 0; i < sprite.length; i++) {
 			if (sprite[i] == null) {
-				BufferedImage img = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
-				sprite[i] = img;
+				sprite[i] = PLACEHOLDER;
 			}
 		}
 		SecuritySystem.checkPermission(k, RequestedAction.INSTANTIATE_ENTITY);
 		key = k; // Security key
-		spr = (BufferedImage[]) sprite; // The sprite
+		spr = SpriteAtlas.pack(sprite); // The sprite
 		x = 0; // X position
 		y = 0; // Y Position
 		dx = 0; // Direction X
 		dy = 0; // Direction Y
 		zIndex = 0;
-		EventSystem.addHandler(tickEvent = new EEHandler<UpdateEvent>() { // Update
-																			// handler
-			@Override
-			public void handle(UpdateEvent T) {
-				if (appearsIn != null && EventSystem.getState() != null) {
-					if (!EventSystem.getState().equals(appearsIn)) {
-						// Event system is in a state, but not this one.
-						return;
-					}
-				}
-				if (!checkCollisionWithPos(dx, dy)) {
-					// Move in direction if it won't cause a collision.
-					x += dx;
-					y += dy;
-				}
-				if (gravity) {
-					// Gravity calculations.
-					if (!checkCollisionWithPos(0, fallspeed)) {
-						if (!gravityOverride) {
-							y += fallspeed;
-						}
-					} else if (gravityOverride) {
-						gravityOverride = false;
-					}
-				}
-				if (jumping) {
-					// Jump
-					if (jumpPixCount >= jumpHeight) {
-						jumping = false;
-						jumpPixCount = 0;
-						setDirection(dx, 2);
-					} else {
-						jumpPixCount += 2;
-						y += 2;
-					}
-				}
-				if (autoMode == 1) { // Auto pilot mode.
-					if (counter == 0) { // Limiter
-						counter = autoLimit;
-						double diffX = x - target.x; // The difference between
-														// the two x values.
-						double diffY = y - target.y; // The difference between
-														// the two y values.
-						// Find angle to go towards.
-						double angle = Math.atan2(diffX, diffY);
-						dx = Math.sin(angle * autoMultiplier);
-						dy = Math.cos(angle * autoMultiplier);
-					} else {
-						counter--;
-					}
-				}
-				if (playingAnimation == null) { // Use normal sprite animation
-					if (currentFrame >= frameSpeed) {
-						currentFrame = 0;
-						int index = frameNum + 1;
-						if (index == spr.length) {
-							index = 0;
-						}
-						frameNum = index;
-					} else {
-						currentFrame++;
-					}
-				}
-				if (playingAnimation != null && playingAnimation.isFinished()) {
-					playingAnimation = null; // Animation over, destroy it.
-				}
-				if (playingAnimation != null && !playingAnimation.isFinished()) {
-					playingAnimation.tick(); // Send update to animation.
+		EntityManager.spawn(this, key);
+	}
+
+	/**
+	 * Updates the entity. Called by EntityManager.
+	 */
+	void update() {
+		if (appearsIn != null && EventSystem.getState() != null) {
+			if (!EventSystem.getState().equals(appearsIn)) {
+				// Event system is in a state, but not this one.
+				return;
+			}
+		}
+		if (row < 0) { // EntityStore moves the entities in it.
+			prevX = x; // Remember where the entity was for interpolation.
+			prevY = y;
+			step();
+		}
+		if (autoMode == 1) { // Auto pilot mode.
+			if (counter == 0) { // Limiter
+				counter = autoLimit;
+				double diffX = getX() - target.getX(); // The difference between the x values.
+				double diffY = getY() - target.getY(); // The difference between the y values.
+				// Find angle to go towards.
+				double angle = Math.atan2(diffX, diffY);
+				setDirection(Math.sin(angle * autoMultiplier), Math.cos(angle * autoMultiplier));
+			} else {
+				counter--;
+			}
+		}
+		if (playingAnimation == null && row < 0) { // Use normal sprite animation
+			if (currentFrame >= frameSpeed) {
+				currentFrame = 0;
+				int index = frameNum + 1;
+				if (index == spr.length) {
+					index = 0;
 				}
+				frameNum = index;
+			} else {
+				currentFrame++;
 			}
+		}
+		if (playingAnimation != null && playingAnimation.isFinished()) {
+			playingAnimation = null; // Animation over, destroy it.
+			if (row >= 0) {
+				EntityStore.animating[row] = false;
+			}
+		}
+		if (playingAnimation != null && !playingAnimation.isFinished()) {
+			playingAnimation.tick(); // Send update to animation.
+		}
+		int buffer = WorldSnapshot.getCaptureBuffer();
+		if (buffer != -1) { // Copy what is needed to draw this update.
+			snapshots[buffer].capture(this, WorldSnapshot.getFrame(buffer));
+		}
+	}
 
-			@Override
-			public int getPriority() {
-				return zIndex;
+	/**
+	 * Draws the entity. Called by EntityManager.
+	 *
+	 * @param evt
+	 *            The render event.
+	 */
+	void render(RenderEvent evt) {
+		if (appearsIn != null && EventSystem.getState() != null) {
+			if (!EventSystem.getState().equals(appearsIn)) {
+				// Don't render, it's in the wrong state.
+				return;
 			}
-		}, key);
-		EventSystem.addHandler(renderEvent = new EEHandler<RenderEvent>() { // Render
-																			// the
-			// entity.
-
-			@Override
-			public void handle(RenderEvent evt) {
-				if (appearsIn != null && EventSystem.getState() != null) {
-					if (!EventSystem.getState().equals(appearsIn)) {
-						// Don't render, it's in the wrong state.
-						return;
-					}
-				}
-				Graphics2D graphics = evt.getGraphics();
-				if (playingAnimation != null) {
-					graphics.drawImage(playingAnimation.getCurrentFrame(), (int) x, (int) y, null);
-				} else {
-					graphics.drawImage(spr[frameNum], (int) x, (int) y, null);
-				}
-				if (showHealth) {
-					// Show health bar.
-					graphics.setColor(Color.RED);
-					graphics.fillRect((int) x - 30, (int) y - 20, 100, 5);
-					graphics.setColor(Color.GREEN);
-					graphics.fillRect((int) x - 30, (int) y - 20, (int) (health / MaxHealth * 100), 5);
+		}
+		int buffer = WorldSnapshot.getDrawBuffer();
+		if (buffer != -1) { // Draw the copy made by the update thread.
+			RenderState state = snapshots[buffer];
+			if (state.frame == WorldSnapshot.getFrame(buffer)) {
+				state.draw(evt.getGraphics(), evt.getInterpolation());
+			}
+			return;
+		}
+		Graphics2D graphics = evt.getGraphics();
+		// Draw between the last and current position for smooth movement.
+		double alpha = evt.getInterpolation();
+		double lastX = getPrevX(), lastY = getPrevY();
+		int drawX = (int) (lastX + (getX() - lastX) * alpha);
+		int drawY = (int) (lastY + (getY() - lastY) * alpha);
+		if (playingAnimation != null) {
+			playingAnimation.getCurrentSprite().draw(graphics, drawX, drawY);
+		} else {
+			spr[getFrame()].draw(graphics, drawX, drawY);
+		}
+		if (showHealth) {
+			drawHealth(graphics, drawX, drawY, health, MaxHealth);
+		}
+	}
+
+	/**
+	 * Moves the entity by one update: its direction, then gravity, then its
+	 * jump. This is what the update does, so the same movement can be run
+	 * again, like when a client replays inputs the server hasn't seen yet.
+	 *
+	 * @since V2.2.2
+	 */
+	public void step() {
+		if (row >= 0) {
+			EntityStore.step(row, MapManager.getLoadedMap() != null);
+			return;
+		}
+		if (!checkCollisionWithPos(dx, dy)) {
+			// Move in direction if it won't cause a collision.
+			x += dx;
+			y += dy;
+		}
+		if (gravity) {
+			// Gravity calculations.
+			if (!checkCollisionWithPos(0, fallspeed)) {
+				if (!gravityOverride) {
+					y += fallspeed;
 				}
+			} else if (gravityOverride) {
+				gravityOverride = false;
+			}
+		}
+		if (jumping) {
+			// Jump
+			if (jumpPixCount >= jumpHeight) {
+				jumping = false;
+				jumpPixCount = 0;
+				setDirection(dx, 2);
+			} else {
+				jumpPixCount += 2;
+				y += 2;
 			}
+		}
+	}
+
+	/**
+	 * Gets everything step uses that changes between updates: x, y, x
+	 * direction, y direction, jumping (1 or 0), pixels jumped, jump height and
+	 * the gravity override (1 or 0).
+	 *
+	 * @return The state.
+	 * @since V2.2.2
+	 */
+	public double[] getMotionState() {
+		if (row >= 0) {
+			loadRow(row);
+		}
+		return new double[] { x, y, dx, dy, jumping ? 1 : 0, jumpPixCount, jumpHeight, gravityOverride ? 1 : 0 };
+	}
+
+	/**
+	 * Sets the state from getMotionState.
+	 *
+	 * @param state
+	 *            The state.
+	 * @since V2.2.2
+	 */
+	public void setMotionState(double[] state) {
+		if (state == null || state.length != 8) {
+			throw new IllegalArgumentException("The state must come from getMotionState.");
+		}
+		if (row >= 0) {
+			loadRow(row);
+		}
+		x = state[0];
+		y = state[1];
+		dx = state[2];
+		dy = state[3];
+		jumping = state[4] != 0;
+		jumpPixCount = (int) state[5];
+		jumpHeight = (int) state[6];
+		gravityOverride = state[7] != 0;
+		if (row >= 0) {
+			saveRow(row);
+		}
+	}
+
+	/**
+	 * Copies the entity's movement into a row of EntityStore.
+	 *
+	 * @param r
+	 *            The row.
+	 */
+	void saveRow(int r) {
+		EntityStore.x[r] = x;
+		EntityStore.y[r] = y;
+		EntityStore.prevX[r] = prevX;
+		EntityStore.prevY[r] = prevY;
+		EntityStore.dx[r] = dx;
+		EntityStore.dy[r] = dy;
+		EntityStore.gravity[r] = gravity;
+		EntityStore.gravityOverride[r] = gravityOverride;
+		EntityStore.fallSpeed[r] = fallspeed;
+		EntityStore.jumping[r] = jumping;
+		EntityStore.jumpHeight[r] = jumpHeight;
+		EntityStore.jumpPixCount[r] = jumpPixCount;
+		EntityStore.frameNum[r] = frameNum;
+		EntityStore.currentFrame[r] = currentFrame;
+		EntityStore.frameSpeed[r] = frameSpeed;
+		EntityStore.frameCount[r] = spr.length;
+		EntityStore.animating[r] = playingAnimation != null;
+		EntityStore.appearsIn[r] = appearsIn;
+	}
+
+	/**
+	 * Copies the entity's movement back from a row of EntityStore.
+	 *
+	 * @param r
+	 *            The row.
+	 */
+	void loadRow(int r) {
+		x = EntityStore.x[r];
+		y = EntityStore.y[r];
+		prevX = EntityStore.prevX[r];
+		prevY = EntityStore.prevY[r];
+		dx = EntityStore.dx[r];
+		dy = EntityStore.dy[r];
+		gravityOverride = EntityStore.gravityOverride[r];
+		jumping = EntityStore.jumping[r];
+		jumpPixCount = EntityStore.jumpPixCount[r];
+		frameNum = EntityStore.frameNum[r];
+		currentFrame = EntityStore.currentFrame[r];
+	}
+
+	/**
+	 * Draws a health bar above the entity.
+	 *
+	 * @param graphics
+	 *            The graphics.
+	 * @param x
+	 *            The entity's x position.
+	 * @param y
+	 *            The entity's y position.
+	 * @param health
+	 *            The health.
+	 * @param max
+	 *            The maximum health.
+	 */
+	private static void drawHealth(Graphics2D graphics, int x, int y, double health, int max) {
+		graphics.setColor(Color.RED);
+		graphics.fillRect(x - 30, y - 20, 100, 5);
+		graphics.setColor(Color.GREEN);
+		graphics.fillRect(x - 30, y - 20, (int) (health / max * 100), 5);
+	}
 
-			@Override
-			public int getPriority() {
-				return zIndex;
+	/**
+	 * What is needed to draw the entity for one update, used when the game loop
+	 * is pipelined.
+	 *
+	 * @author Dillon - Github dg092099
+	 *
+	 */
+	private static class RenderState {
+		private long frame = -1; // The update this was captured in.
+		private double x, y, prevX, prevY;
+		private Sprite img;
+		private boolean showHealth;
+		private double health;
+		private int maxHealth;
+
+		/**
+		 * Copies the entity's state.
+		 *
+		 * @param e
+		 *            The entity.
+		 * @param f
+		 *            The update number.
+		 */
+		void capture(Entity e, long f) {
+			x = e.getX();
+			y = e.getY();
+			prevX = e.getPrevX();
+			prevY = e.getPrevY();
+			img = e.playingAnimation != null ? e.playingAnimation.getCurrentSprite() : e.spr[e.getFrame()];
+			showHealth = e.showHealth;
+			health = e.health;
+			maxHealth = e.MaxHealth;
+			frame = f;
+		}
+
+		/**
+		 * Draws the copied state.
+		 *
+		 * @param graphics
+		 *            The graphics.
+		 * @param alpha
+		 *            How far the frame is between the last update and this one.
+		 */
+		void draw(Graphics2D graphics, double alpha) {
+			int drawX = (int) (prevX + (x - prevX) * alpha);
+			int drawY = (int) (prevY + (y - prevY) * alpha);
+			img.draw(graphics, drawX, drawY);
+			if (showHealth) {
+				drawHealth(graphics, drawX, drawY, health, maxHealth);
 			}
-		}, key);
+		}
 	}
 
+	private final transient RenderState[] snapshots = { new RenderState(), new RenderState() }; // The
+	// double buffered copies for the pipelined loop.
+
 	private boolean destroyed = false;
+	transient EntityManager.Bucket bucket; // The zIndex bucket the entity is in, or null.
+	transient int slot = -1; // Its index in the bucket.
+	transient EntityPool pool; // The pool the entity came from, or null.
+	transient int contactId = 0; // The entity's id in CollisionSystem, or 0.
+
+	/**
+	 * Gets the packed sprites.
+	 *
+	 * @return The sprites.
+	 */
+	Sprite[] getSprites() {
+		return spr;
+	}
 
 	/**
-	 * Removes the entity's event handlers, allowing the entity to be safely
+	 * Puts a destroyed entity back the way it was made and brings it back to
+	 * life, for EntityPool.
+	 *
+	 * @param sprites
+	 *            The sprites it was made with.
+	 */
+	void reset(Sprite[] sprites) {
+		spr = sprites;
+		frameNum = 0;
+		currentFrame = 0;
+		frameSpeed = 2;
+		appearsIn = null;
+		playingAnimation = null;
+		zIndex = 0;
+		x = 0;
+		y = 0;
+		prevX = 0;
+		prevY = 0;
+		dx = 0;
+		dy = 0;
+		autoMode = -1;
+		target = null;
+		autoLimit = 0;
+		autoMultiplier = 0;
+		counter = 0;
+		health = 0D;
+		MaxHealth = 100;
+		showHealth = false;
+		gravity = false;
+		fallspeed = 5;
+		gravityOverride = false;
+		jumping = false;
+		jumpHeight = 1;
+		jumpPixCount = 0;
+		entityType = "";
+		for (RenderState state : snapshots) {
+			state.frame = -1;
+		}
+		contactId = 0; // The old entity's contacts end instead of carrying over.
+		destroyed = false;
+		EntityManager.changed(this);
+	}
+
+	/**
+	 * Checks if the entity was destroyed.
+	 *
+	 * @return If it was.
+	 * @since V2.2.2
+	 */
+	public boolean isDestroyed() {
+		return destroyed;
+	}
+
+	/**
+	 * Removes the entity from EntityManager, allowing the entity to be safely
 	 * destroyed.
 	 */
 	public void destroy() {
 		if (destroyed) {
 			return;
 		}
-		EventSystem.removeHandler(renderEvent);
-		EventSystem.removeHandler(tickEvent);
 		destroyed = true;
+		EntityStore.remove(this);
+		EntityManager.changed(this);
 	}
 
 	/**
@@ -218,7 +478,10 @@ public class Entity implements Serializable {
 	}
 
 	private double x, y; // The entity's position values.
+	private transient double prevX, prevY; // The position before the last update.
 	private transient double dx, dy; // The entity's velocity values.
+	transient int row = -1; // The entity's row in EntityStore, or -1 if it
+							// keeps its own movement.
 
 	/**
 	 * Sets the x position of the entity.
@@ -228,6 +491,11 @@ public class Entity implements Serializable {
 	 */
 	public void setX(int X) {
 		x = X;
+		prevX = X;
+		if (row >= 0) {
+			EntityStore.x[row] = X;
+			EntityStore.prevX[row] = X;
+		}
 	}
 
 	/**
@@ -236,7 +504,7 @@ public class Entity implements Serializable {
 	 * @return X
 	 */
 	public double getX() {
-		return x;
+		return row >= 0 ? EntityStore.x[row] : x;
 	}
 
 	/**
@@ -247,6 +515,11 @@ public class Entity implements Serializable {
 	 */
 	public void setY(int Y) {
 		y = Y;
+		prevY = Y;
+		if (row >= 0) {
+			EntityStore.y[row] = Y;
+			EntityStore.prevY[row] = Y;
+		}
 	}
 
 	/**
@@ -255,7 +528,55 @@ public class Entity implements Serializable {
 	 * @return Y
 	 */
 	public double getY() {
-		return y;
+		return row >= 0 ? EntityStore.y[row] : y;
+	}
+
+	private double getPrevX() {
+		return row >= 0 ? EntityStore.prevX[row] : prevX;
+	}
+
+	private double getPrevY() {
+		return row >= 0 ? EntityStore.prevY[row] : prevY;
+	}
+
+	/**
+	 * Moves the entity without resetting its last position, so the move is
+	 * drawn smoothly. Used when the position comes from somewhere else, like a
+	 * server.
+	 *
+	 * @param X
+	 *            The x position.
+	 * @param Y
+	 *            The y position.
+	 * @since V2.2.2
+	 */
+	public void setPosition(double X, double Y) {
+		x = X;
+		y = Y;
+		if (row >= 0) {
+			EntityStore.x[row] = X;
+			EntityStore.y[row] = Y;
+		}
+	}
+
+	/**
+	 * Gets the x velocity.
+	 *
+	 * @return The x velocity.
+	 * @since V2.2.2
+	 */
+	public double getVelocityX() {
+		return row >= 0 ? EntityStore.dx[row] : dx;
+	}
+
+	/**
+	 * Gets the y velocity.
+	 *
+	 * @return The y velocity.
+	 * @since V2.2.2
+	 */
+	public double getVelocityY() {
+		return row >= 0 ? EntityStore.dy[row] : dy;
 	}
 
 	/**
@@ -269,6 +590,10 @@ public class Entity implements Serializable {
 	public void setDirection(double DX, double DY) {
 		dx = DX;
 		dy = DY;
+		if (row >= 0) {
+			EntityStore.dx[row] = DX;
+			EntityStore.dy[row] = DY;
+		}
 	}
 
 	/**
@@ -281,8 +606,7 @@ public class Entity implements Serializable {
 		if (angle < 0 || angle > 360) {
 			angle %= 360;
 		}
-		dx = Math.sin(angle);
-		dy = Math.cos(angle);
+		setDirection(Math.sin(angle), Math.cos(angle));
 	}
 
 	/**
@@ -291,21 +615,36 @@ public class Entity implements Serializable {
 	 * @return array: [x direction, y direction]
 	 */
 	public int[] getDirection() {
-		return new int[] { (int) dx, (int) dy };
+		return new int[] { (int) getVelocityX(), (int) getVelocityY() };
 	}
 
 	/**
-	 * Sets the current sprite.
+	 * Sets the current sprite. Like the constructor, the images are copied, so
+	 * call this again after drawing on them.
 	 *
 	 * @param img
 	 *            The sprites.
 	 */
 	public void setSprite(Image[] img) {
-		spr = (BufferedImage[]) img;
+		if (img == null || img.length == 0) {
+			throw new IllegalArgumentException("The sprite array must not be null or empty.");
+		}
+		Sprite[] sprites = SpriteAtlas.pack(img);
+		if (getFrame() >= sprites.length) {
+			frameNum = 0;
+			if (row >= 0) {
+				EntityStore.frameNum[row] = 0;
+			}
+		}
+		spr = sprites;
+		if (row >= 0) {
+			EntityStore.frameCount[row] = sprites.length;
+		}
 	}
 
 	/**
-	 * Sets the current sprite.
+	 * Sets the current sprite. Like the constructor, the images are copied, so
+	 * call this again after drawing on them.
 	 *
 	 * @param img
 	 *            The sprite
@@ -472,6 +811,9 @@ public class Entity implements Serializable {
 	 */
 	public void setGravity(boolean g) {
 		gravity = g;
+		if (row >= 0) {
+			EntityStore.gravity[row] = g;
+		}
 	}
 
 	private int fallspeed = 5; // How quickly the entity should fall.
@@ -484,6 +826,9 @@ public class Entity implements Serializable {
 	 */
 	public void setFallSpeed(int speed) {
 		fallspeed = speed;
+		if (row >= 0) {
+			EntityStore.fallSpeed[row] = speed;
+		}
 	}
 
 	private boolean gravityOverride = false; // Temporarily shuts off the
@@ -494,6 +839,9 @@ public class Entity implements Serializable {
 	 */
 	public void setGravityJumpOverride() {
 		gravityOverride = true;
+		if (row >= 0) {
+			EntityStore.gravityOverride[row] = true;
+		}
 	}
 
 	private boolean jumping = false; // Indicates if the entity is jumping.
@@ -509,6 +857,10 @@ public class Entity implements Serializable {
 	public void jump(int height) {
 		jumpHeight = height;
 		jumping = true;
+		if (row >= 0) {
+			EntityStore.jumpHeight[row] = height;
+			EntityStore.jumping[row] = true;
+		}
 		setGravityJumpOverride();
 	}
 
@@ -588,6 +940,9 @@ public class Entity implements Serializable {
 	public String toString() {
 		StringBuilder sb = new StringBuilder();
 		sb.append("\n\ndillon.gameAPI.entity.Entity Dump: Entity code " + hashCode() + "\n");
+		if (row >= 0) {
+			loadRow(row);
+		}
 		String data = "";
 		data += String.format("%-25s %-5s\n", "Key", "Value");
 		data += String.format("%-25s %-5s\n", "---", "-----");
@@ -635,6 +990,35 @@ public class Entity implements Serializable {
 		entityType = type;
 	}
 
+	/**
+	 * Gets the sprite frame being shown.
+	 *
+	 * @return The frame index.
+	 * @since V2.2.2
+	 */
+	public int getFrame() {
+		return row >= 0 ? EntityStore.frameNum[row] : frameNum;
+	}
+
+	/**
+	 * Sets the sprite frame being shown.
+	 *
+	 * @param frame
+	 *            The frame index.
+	 * @since V2.2.2
+	 */
+	public void setFrame(int frame) {
+		if (frame < 0 || frame >= spr.length) {
+			throw new IllegalArgumentException("The frame must be one of the entity's sprites.");
+		}
+		frameNum = frame;
+		currentFrame = 0;
+		if (row >= 0) {
+			EntityStore.frameNum[row] = frame;
+			EntityStore.currentFrame[row] = 0;
+		}
+	}
+
 	/**
 	 * @return the frameSpeed
 	 */
@@ -653,6 +1037,9 @@ public class Entity implements Serializable {
 			throw new IllegalArgumentException("The frame speed must not be less than 0.");
 		}
 		this.frameSpeed = frameSpeed;
+		if (row >= 0) {
+			EntityStore.frameSpeed[row] = frameSpeed;
+		}
 	}
 
 	/**
@@ -673,6 +1060,9 @@ public class Entity implements Serializable {
 	 */
 	public void setAppearsIn(State appearsIn) {
 		this.appearsIn = appearsIn;
+		if (row >= 0) {
+			EntityStore.appearsIn[row] = appearsIn;
+		}
 	}
 
 	/**
@@ -688,5 +1078,8 @@ public class Entity implements Serializable {
 	 */
 	public void setzIndex(int zIndex) {
 		this.zIndex = zIndex;
+		if (!destroyed) {
+			EntityManager.changed(this); // Move it to its new bucket.
+		}
 	}
 }
\ No newline at end of file
@@ -0,0 +1,301 @@
+package dillon.gameAPI.entity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.TreeMap;
+
+import dillon.gameAPI.core.WorldSnapshot;
+import dillon.gameAPI.event.EEHandler;
+import dillon.gameAPI.event.EventSystem;
+import dillon.gameAPI.event.RenderEvent;
+import dillon.gameAPI.event.UpdateEvent;
+import dillon.gameAPI.security.SecurityKey;
+
+/**
+ * Owns every live entity. Entities are kept in a bucket for each zIndex, and
+ * each bucket has one update handler and one render handler with the zIndex as
+ * their priority, instead of two handlers for each entity. Entities still
+ * update and draw in order with the other handlers, but the handlers grow with
+ * the zIndexes in use rather than with the entities. Entities join when they
+ * are made and leave when destroyed. Like handlers, the change is made at the
+ * start of the next update, and each one is a constant time add or
+ * swap-remove.
+ *
+ * @author Dillon - Github dg092099
+ * @since V2.2.2
+ */
+public final class EntityManager {
+	private static final Object lock = new Object(); // Guards pending and buckets.
+	private static ArrayList<Entity> pending = new ArrayList<Entity>(); // Entities
+	// spawned, destroyed or moved to another zIndex since the last update.
+	private static ArrayList<Entity> applying = new ArrayList<Entity>(); // Swapped
+	// with pending when the changes are made.
+	private static final TreeMap<Integer, Bucket> buckets = new TreeMap<Integer, Bucket>();
+	private static volatile Bucket[] order = new Bucket[0]; // The buckets, lowest zIndex
+	// first. Replaced, not changed, when a bucket is made.
+	private static int size = 0; // Live entities.
+	private static SecurityKey key;
+	private static EEHandler<UpdateEvent> applyHandler;
+	private static long spawned = 0, destroyed = 0;
+
+	/**
+	 * The entities with one zIndex, and the handlers that update and draw them.
+	 */
+	static final class Bucket {
+		final int zIndex;
+		Entity[] entities = new Entity[16];
+		int size = 0;
+		private final Entity[][] drawn = { new Entity[0], new Entity[0] }; // The
+		// entities captured into each buffer of the pipelined loop.
+		private final int[] drawnCount = new int[2];
+
+		Bucket(int zIndex) {
+			this.zIndex = zIndex;
+		}
+
+		void add(Entity e) {
+			if (size == entities.length) {
+				entities = Arrays.copyOf(entities, size * 2);
+			}
+			entities[size] = e;
+			e.bucket = this;
+			e.slot = size++;
+		}
+
+		void remove(Entity e) {
+			int last = --size;
+			if (e.slot != last) { // Fill the gap with the last entity.
+				Entity moved = entities[last];
+				entities[e.slot] = moved;
+				moved.slot = e.slot;
+			}
+			entities[last] = null;
+			e.bucket = null;
+			e.slot = -1;
+		}
+
+		/**
+		 * Updates the entities, then notes which to draw for the pipelined loop.
+		 */
+		void update() {
+			synchronized (EntityManager.class) {
+				for (int i = 0; i < size; i++) {
+					Entity e = entities[i];
+					if (!e.isDestroyed()) {
+						e.update();
+					}
+				}
+				int buffer = WorldSnapshot.getCaptureBuffer();
+				if (buffer != -1) { // Remember what to draw from this buffer.
+					if (drawn[buffer].length < size) {
+						drawn[buffer] = new Entity[size * 2];
+					}
+					System.arraycopy(entities, 0, drawn[buffer], 0, size);
+					Arrays.fill(drawn[buffer], size, drawnCount[buffer], null);
+					drawnCount[buffer] = size;
+				}
+			}
+		}
+
+		/**
+		 * Draws the entities.
+		 *
+		 * @param evt
+		 *            The render event.
+		 */
+		void render(RenderEvent evt) {
+			int buffer = WorldSnapshot.getDrawBuffer();
+			if (buffer != -1) { // Draw what the update thread captured.
+				Entity[] captured = drawn[buffer];
+				for (int i = 0; i < drawnCount[buffer]; i++) {
+					captured[i].render(evt);
+				}
+				return;
+			}
+			synchronized (EntityManager.class) {
+				for (int i = 0; i < size; i++) {
+					Entity e = entities[i];
+					if (!e.isDestroyed()) {
+						e.render(evt);
+					}
+				}
+			}
+		}
+	}
+
+	private EntityManager() {
+	}
+
+	/**
+	 * Adds a new entity at the start of the next update.
+	 *
+	 * @param e
+	 *            The entity.
+	 * @param k
+	 *            The security key.
+	 */
+	static void spawn(Entity e, SecurityKey k) {
+		synchronized (lock) {
+			if (applyHandler == null) {
+				key = k;
+				EventSystem.addHandler(applyHandler = new EEHandler<UpdateEvent>() {
+					@Override
+					public void handle(UpdateEvent evt) {
+						apply();
+					}
+
+					@Override
+					public int getPriority() {
+						return Integer.MIN_VALUE + 2; // After EntityStore, before the buckets.
+					}
+				}, k);
+			}
+			bucket(e.getzIndex());
+			pending.add(e);
+		}
+	}
+
+	/**
+	 * Marks an entity as changed, so it is removed or moved to its zIndex at the
+	 * start of the next update.
+	 *
+	 * @param e
+	 *            The entity.
+	 */
+	static void changed(Entity e) {
+		synchronized (lock) {
+			if (!e.isDestroyed()) {
+				bucket(e.getzIndex()); // So its handlers are ready by the next update.
+			}
+			pending.add(e);
+		}
+	}
+
+	/**
+	 * Gets the bucket for a zIndex, making it and adding its handlers if it
+	 * isn't there yet. Must be called holding lock.
+	 *
+	 * @param zIndex
+	 *            The zIndex.
+	 * @return The bucket.
+	 */
+	private static Bucket bucket(int zIndex) {
+		Bucket b = buckets.get(zIndex);
+		if (b != null) {
+			return b;
+		}
+		final Bucket made = new Bucket(zIndex);
+		buckets.put(zIndex, made);
+		order = buckets.values().toArray(new Bucket[buckets.size()]);
+		EventSystem.addHandler(new EEHandler<UpdateEvent>() {
+			@Override
+			public void handle(UpdateEvent evt) {
+				made.update();
+			}
+
+			@Override
+			public int getPriority() {
+				return made.zIndex;
+			}
+		}, key);
+		EventSystem.addHandler(new EEHandler<RenderEvent>() {
+			@Override
+			public void handle(RenderEvent evt) {
+				made.render(evt);
+			}
+
+			@Override
+			public int getPriority() {
+				return made.zIndex;
+			}
+		}, key);
+		return made;
+	}
+
+	/**
+	 * Makes the changes since the last update. Each entity ends up in the bucket
+	 * for its zIndex, or in none if it was destroyed.
+	 */
+	private static synchronized void apply() {
+		synchronized (lock) {
+			if (pending.isEmpty()) {
+				return;
+			}
+			ArrayList<Entity> swap = applying;
+			applying = pending;
+			pending = swap;
+		}
+		for (int i = 0; i < applying.size(); i++) {
+			Entity e = applying.get(i);
+			Bucket b = e.bucket;
+			boolean live = !e.isDestroyed();
+			if (b != null && (!live || b.zIndex != e.getzIndex())) {
+				b.remove(e);
+				size--;
+				if (!live) {
+					destroyed++;
+				}
+			}
+			if (live && e.bucket == null) {
+				Bucket to;
+				synchronized (lock) {
+					to = bucket(e.getzIndex());
+				}
+				if (b == null) {
+					spawned++;
+				}
+				to.add(e);
+				size++;
+			}
+		}
+		applying.clear();
+	}
+
+	/**
+	 * Gets the zIndex buckets, lowest first. Only for use on the update thread
+	 * while holding the EntityManager lock.
+	 *
+	 * @return The buckets.
+	 */
+	static Bucket[] getBuckets() {
+		return order;
+	}
+
+	/**
+	 * Gets the number of live entities.
+	 *
+	 * @return The amount.
+	 */
+	public static synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * Gets the live entities, lowest zIndex first.
+	 *
+	 * @return A copy of the entities.
+	 */
+	public static synchronized ArrayList<Entity> getEntities() {
+		ArrayList<Entity> list = new ArrayList<Entity>(size);
+		for (Bucket b : order) {
+			for (int i = 0; i < b.size; i++) {
+				list.add(b.entities[i]);
+			}
+		}
+		return list;
+	}
+
+	public static synchronized String getDebug() {
+		String data = "\n\ndillon.gameAPI.entity.EntityManager Debug:\n";
+		data += String.format("%-15s %-7s\n", "Key", "Value");
+		data += String.format("%-15s %-7s\n", "---", "-----");
+		data += String.format("%-15s %-7d\n", "Entities:", size);
+		data += String.format("%-15s %-7d\n", "Buckets:", order.length);
+		data += String.format("%-15s %-7d\n", "Spawned:", spawned);
+		data += String.format("%-15s %-7d\n", "Destroyed:", destroyed);
+		synchronized (lock) {
+			data += String.format("%-15s %-7d\n", "Pending:", pending.size());
+		}
+		return data;
+	}
+}
@@ -0,0 +1,158 @@
+package dillon.gameAPI.entity;
+
+import java.awt.Image;
+
+import dillon.gameAPI.security.RequestedAction;
+import dillon.gameAPI.security.SecurityKey;
+import dillon.gameAPI.security.SecuritySystem;
+import dillon.gameAPI.utils.Sprite;
+
+/**
+ * Reuses entities that come and go often, like bullets and particles. Freed
+ * entities are kept, and obtain gives one back reset to how it was made,
+ * instead of making a new one. Its sprites are packed only once and it stays
+ * known to EntityManager, so reusing one makes no garbage.
+ *
+ * @author Dillon - Github dg092099
+ * @since V2.2.2
+ */
+public class EntityPool {
+	private final Image[] images; // The sprite of the pool's entities.
+	private Sprite[] sprites; // The packed sprite, from the first entity made.
+	private final SecurityKey key;
+	private final Entity[] free; // Entities ready to be reused.
+	private int freeCount = 0;
+	private long hits = 0, misses = 0, dropped = 0;
+
+	/**
+	 * Makes a pool.
+	 *
+	 * @param sprite
+	 *            The images for the entities.
+	 * @param capacity
+	 *            How many freed entities to keep. Ones freed past this are left
+	 *            for the garbage collector.
+	 * @param k
+	 *            The security key.
+	 */
+	public EntityPool(Image[] sprite, int capacity, SecurityKey k) {
+		SecuritySystem.checkPermission(k, RequestedAction.INSTANTIATE_ENTITY);
+		if (sprite == null) {
+			throw new IllegalArgumentException("The sprite array must not be null. It can be an empty array.");
+		}
+		if (capacity < 0) {
+			throw new IllegalArgumentException("The capacity must not be negative.");
+		}
+		images = sprite.clone();
+		key = k;
+		free = new Entity[capacity];
+	}
+
+	/**
+	 * Makes entities ahead of time, so the first ones obtained don't have to be
+	 * made during the game.
+	 *
+	 * @param count
+	 *            How many, up to the capacity.
+	 */
+	public synchronized void prefill(int count) {
+		while (freeCount < Math.min(count, free.length)) {
+			Entity e = create();
+			e.destroy();
+			free[freeCount++] = e;
+		}
+	}
+
+	/**
+	 * Gets an entity, reusing a freed one if there is one. It joins
+	 * EntityManager at the start of the next update, like a new entity.
+	 *
+	 * @return The entity.
+	 */
+	public synchronized Entity obtain() {
+		if (freeCount == 0) {
+			misses++;
+			return create();
+		}
+		hits++;
+		Entity e = free[--freeCount];
+		free[freeCount] = null;
+		e.reset(sprites);
+		return e;
+	}
+
+	/**
+	 * Destroys an entity from this pool and keeps it to be reused. It must not
+	 * be used after this.
+	 *
+	 * @param e
+	 *            The entity.
+	 */
+	public synchronized void free(Entity e) {
+		if (e == null || e.pool != this) {
+			throw new IllegalArgumentException("The entity must come from this pool.");
+		}
+		if (e.isDestroyed()) {
+			throw new IllegalArgumentException("The entity is already destroyed.");
+		}
+		e.destroy();
+		if (freeCount < free.length) {
+			free[freeCount++] = e;
+		} else {
+			dropped++;
+		}
+	}
+
+	/**
+	 * Makes a new entity for the pool.
+	 *
+	 * @return The entity.
+	 */
+	private Entity create() {
+		Entity e = new Entity(images.clone(), key);
+		if (sprites == null) {
+			sprites = e.getSprites();
+		}
+		e.pool = this;
+		return e;
+	}
+
+	/**
+	 * Gets how many times obtain reused an entity.
+	 *
+	 * @return The amount.
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Gets how many times obtain had to make a new entity.
+	 *
+	 * @return The amount.
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Gets how many freed entities are waiting to be reused.
+	 *
+	 * @return The amount.
+	 */
+	public synchronized int getFree() {
+		return freeCount;
+	}
+
+	public synchronized String getDebug() {
+		String data = "\n\ndillon.gameAPI.entity.EntityPool Debug:\n";
+		data += String.format("%-15s %-7s\n", "Key", "Value");
+		data += String.format("%-15s %-7s\n", "---", "-----");
+		data += String.format("%-15s %-7d\n", "Free:", freeCount);
+		data += String.format("%-15s %-7d\n", "Capacity:", free.length);
+		data += String.format("%-15s %-7d\n", "Hits:", hits);
+		data += String.format("%-15s %-7d\n", "Misses:", misses);
+		data += String.format("%-15s %-7d\n", "Dropped:", dropped);
+		return data;
+	}
+}
@@ -0,0 +1,259 @@
+package dillon.gameAPI.entity;
+
+import java.util.Arrays;
+
+import dillon.gameAPI.event.EEHandler;
+import dillon.gameAPI.event.EventSystem;
+import dillon.gameAPI.event.State;
+import dillon.gameAPI.event.UpdateEvent;
+import dillon.gameAPI.mapping.MapManager;
+import dillon.gameAPI.security.RequestedAction;
+import dillon.gameAPI.security.SecurityKey;
+import dillon.gameAPI.security.SecuritySystem;
+
+/**
+ * Keeps the movement of entities in rows of plain arrays instead of in each
+ * entity. Every update, all of the rows are moved in one loop, before
+ * EntityManager updates the entities. An entity in the store reads and writes
+ * its row, so it works the same as one outside. Using the store is optional,
+ * entities are only in it once they are added.
+ *
+ * @author Dillon - Github dg092099
+ * @since V2.2.2
+ */
+public final class EntityStore {
+	private static final int INITIAL_CAPACITY = 64;
+	static double[] x = new double[INITIAL_CAPACITY], y = new double[INITIAL_CAPACITY]; // Positions.
+	static double[] prevX = new double[INITIAL_CAPACITY], prevY = new double[INITIAL_CAPACITY]; // Positions
+	// before the last update.
+	static double[] dx = new double[INITIAL_CAPACITY], dy = new double[INITIAL_CAPACITY]; // Velocities.
+	static boolean[] gravity = new boolean[INITIAL_CAPACITY], gravityOverride = new boolean[INITIAL_CAPACITY];
+	static int[] fallSpeed = new int[INITIAL_CAPACITY];
+	static boolean[] jumping = new boolean[INITIAL_CAPACITY];
+	static int[] jumpHeight = new int[INITIAL_CAPACITY], jumpPixCount = new int[INITIAL_CAPACITY];
+	static int[] frameNum = new int[INITIAL_CAPACITY]; // The sprite shown.
+	static int[] currentFrame = new int[INITIAL_CAPACITY]; // Updates since the sprite changed.
+	static int[] frameSpeed = new int[INITIAL_CAPACITY]; // Updates between sprites.
+	static int[] frameCount = new int[INITIAL_CAPACITY]; // The number of sprites.
+	static boolean[] animating = new boolean[INITIAL_CAPACITY]; // An animation is playing, so
+	// the sprites don't change.
+	static State[] appearsIn = new State[INITIAL_CAPACITY];
+	private static Entity[] owners = new Entity[INITIAL_CAPACITY]; // The entity for each row.
+	private static int size = 0; // Rows in use.
+	private static EEHandler<UpdateEvent> updateHandler;
+	private static long lastPass = 0; // Nanoseconds the last update took.
+
+	private EntityStore() {
+	}
+
+	/**
+	 * Moves an entity into the store.
+	 *
+	 * @param e
+	 *            The entity.
+	 * @param k
+	 *            The security key.
+	 */
+	public static synchronized void add(Entity e, SecurityKey k) {
+		SecuritySystem.checkPermission(k, RequestedAction.INSTANTIATE_ENTITY);
+		if (e == null) {
+			throw new IllegalArgumentException("The entity must not be null.");
+		}
+		if (e.row >= 0) {
+			return;
+		}
+		if (updateHandler == null) {
+			EventSystem.addHandler(updateHandler = new EEHandler<UpdateEvent>() {
+				@Override
+				public void handle(UpdateEvent evt) {
+					integrate();
+				}
+
+				@Override
+				public int getPriority() {
+					return Integer.MIN_VALUE + 1; // After inputs, before EntityManager.
+				}
+			}, k);
+		}
+		if (size == owners.length) {
+			grow(size * 2);
+		}
+		owners[size] = e;
+		e.saveRow(size);
+		e.row = size;
+		size++;
+	}
+
+	/**
+	 * Moves an entity out of the store, back into its own fields.
+	 *
+	 * @param e
+	 *            The entity.
+	 */
+	public static synchronized void remove(Entity e) {
+		if (e == null) {
+			throw new IllegalArgumentException("The entity must not be null.");
+		}
+		int r = e.row;
+		if (r < 0) {
+			return;
+		}
+		e.loadRow(r);
+		e.row = -1;
+		int last = --size;
+		if (r != last) { // Fill the gap with the last row.
+			move(last, r);
+			owners[r].row = r;
+		}
+		owners[last] = null;
+		appearsIn[last] = null;
+	}
+
+	/**
+	 * Checks if an entity is in the store.
+	 *
+	 * @param e
+	 *            The entity.
+	 * @return If it is.
+	 */
+	public static synchronized boolean contains(Entity e) {
+		return e != null && e.row >= 0;
+	}
+
+	/**
+	 * Gets the number of entities in the store.
+	 *
+	 * @return The amount.
+	 */
+	public static synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * Moves every entity in the store by one update.
+	 */
+	static synchronized void integrate() {
+		long start = System.nanoTime();
+		boolean map = MapManager.getLoadedMap() != null;
+		State state = EventSystem.getState();
+		for (int i = 0; i < size; i++) {
+			if (state != null && appearsIn[i] != null && !state.equals(appearsIn[i])) {
+				continue; // Not in this state.
+			}
+			prevX[i] = x[i];
+			prevY[i] = y[i];
+			step(i, map);
+			if (!animating[i]) {
+				if (currentFrame[i] >= frameSpeed[i]) {
+					currentFrame[i] = 0;
+					frameNum[i] = frameNum[i] + 1 == frameCount[i] ? 0 : frameNum[i] + 1;
+				} else {
+					currentFrame[i]++;
+				}
+			}
+		}
+		lastPass = System.nanoTime() - start;
+	}
+
+	/**
+	 * Moves one row by one update, the same way Entity.step does.
+	 *
+	 * @param i
+	 *            The row.
+	 * @param map
+	 *            If a map is loaded, so tiles need checking.
+	 */
+	static void step(int i, boolean map) {
+		if (!map || !MapManager.getCollisionPos(owners[i], dx[i], dy[i])) {
+			x[i] += dx[i];
+			y[i] += dy[i];
+		}
+		if (gravity[i]) {
+			if (!map || !MapManager.getCollisionPos(owners[i], 0, fallSpeed[i])) {
+				if (!gravityOverride[i]) {
+					y[i] += fallSpeed[i];
+				}
+			} else if (gravityOverride[i]) {
+				gravityOverride[i] = false;
+			}
+		}
+		if (jumping[i]) {
+			if (jumpPixCount[i] >= jumpHeight[i]) {
+				jumping[i] = false;
+				jumpPixCount[i] = 0;
+				dy[i] = 2;
+			} else {
+				jumpPixCount[i] += 2;
+				y[i] += 2;
+			}
+		}
+	}
+
+	/**
+	 * Copies a row over another.
+	 *
+	 * @param from
+	 *            The row to copy.
+	 * @param to
+	 *            The row to overwrite.
+	 */
+	private static void move(int from, int to) {
+		x[to] = x[from];
+		y[to] = y[from];
+		prevX[to] = prevX[from];
+		prevY[to] = prevY[from];
+		dx[to] = dx[from];
+		dy[to] = dy[from];
+		gravity[to] = gravity[from];
+		gravityOverride[to] = gravityOverride[from];
+		fallSpeed[to] = fallSpeed[from];
+		jumping[to] = jumping[from];
+		jumpHeight[to] = jumpHeight[from];
+		jumpPixCount[to] = jumpPixCount[from];
+		frameNum[to] = frameNum[from];
+		currentFrame[to] = currentFrame[from];
+		frameSpeed[to] = frameSpeed[from];
+		frameCount[to] = frameCount[from];
+		animating[to] = animating[from];
+		appearsIn[to] = appearsIn[from];
+		owners[to] = owners[from];
+	}
+
+	/**
+	 * Makes room for more rows.
+	 *
+	 * @param capacity
+	 *            The new number of rows.
+	 */
+	private static void grow(int capacity) {
+		x = Arrays.copyOf(x, capacity);
+		y = Arrays.copyOf(y, capacity);
+		prevX = Arrays.copyOf(prevX, capacity);
+		prevY = Arrays.copyOf(prevY, capacity);
+		dx = Arrays.copyOf(dx, capacity);
+		dy = Arrays.copyOf(dy, capacity);
+		gravity = Arrays.copyOf(gravity, capacity);
+		gravityOverride = Arrays.copyOf(gravityOverride, capacity);
+		fallSpeed = Arrays.copyOf(fallSpeed, capacity);
+		jumping = Arrays.copyOf(jumping, capacity);
+		jumpHeight = Arrays.copyOf(jumpHeight, capacity);
+		jumpPixCount = Arrays.copyOf(jumpPixCount, capacity);
+		frameNum = Arrays.copyOf(frameNum, capacity);
+		currentFrame = Arrays.copyOf(currentFrame, capacity);
+		frameSpeed = Arrays.copyOf(frameSpeed, capacity);
+		frameCount = Arrays.copyOf(frameCount, capacity);
+		animating = Arrays.copyOf(animating, capacity);
+		appearsIn = Arrays.copyOf(appearsIn, capacity);
+		owners = Arrays.copyOf(owners, capacity);
+	}
+
+	public static synchronized String getDebug() {
+		String data = "\n\ndillon.gameAPI.entity.EntityStore Debug:\n";
+		data += String.format("%-15s %-7s\n", "Key", "Value");
+		data += String.format("%-15s %-7s\n", "---", "-----");
+		data += String.format("%-15s %-7d\n", "Entities:", size);
+		data += String.format("%-15s %-7d\n", "Capacity:", owners.length);
+		data += String.format("%-15s %-7d\n", "Last Pass (us):", lastPass / 1000);
+		return data;
+	}
+}
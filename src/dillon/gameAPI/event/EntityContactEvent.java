@@ -0,0 +1,90 @@
+package dillon.gameAPI.event;
+
+import dillon.gameAPI.entity.Entity;
+
+/**
+ * Fires when two entities start touching, while they keep touching, and when
+ * they stop. Sent by CollisionSystem after the entities move.
+ *
+ * @author Dillon - Github dg092099
+ * @since V2.2.2
+ */
+public class EntityContactEvent extends EEvent {
+	@Override
+	public String getType() {
+		return "Entity Contact";
+	}
+
+	private final ContactMode mode;
+	private final Entity first, second;
+
+	/**
+	 * @return the mode
+	 */
+	public ContactMode getMode() {
+		return mode;
+	}
+
+	/**
+	 * @return one of the entities
+	 */
+	public Entity getFirst() {
+		return first;
+	}
+
+	/**
+	 * @return the other entity
+	 */
+	public Entity getSecond() {
+		return second;
+	}
+
+	/**
+	 * Gets the entity that is touching the given one.
+	 *
+	 * @param e
+	 *            One of the entities.
+	 * @return The other one, or null if the given one isn't in the contact.
+	 */
+	public Entity getOther(Entity e) {
+		if (e == first) {
+			return second;
+		}
+		if (e == second) {
+			return first;
+		}
+		return null;
+	}
+
+	/**
+	 * Instantiates a contact event.
+	 *
+	 * @param Mode
+	 *            If the contact began, stayed or ended.
+	 * @param a
+	 *            One of the entities.
+	 * @param b
+	 *            The other entity.
+	 */
+	public EntityContactEvent(ContactMode Mode, Entity a, Entity b) {
+		if (Mode == null) {
+			throw new IllegalArgumentException("The mode must not be null.");
+		}
+		if (a == null || b == null) {
+			throw new IllegalArgumentException("The entities must not be null.");
+		}
+		mode = Mode;
+		first = a;
+		second = b;
+	}
+
+	/**
+	 * What is happening to the contact.
+	 *
+	 * @author Dillon - Github dg092099
+	 * @since V2.2.2
+	 */
+	public static enum ContactMode {
+		BEGIN, STAY, END
+	}
+}
@@ -2,6 +2,8 @@ package dillon.gameAPI.event;
 
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import dillon.gameAPI.modding.ModdingCore;
 import dillon.gameAPI.security.RequestedAction;
@@ -23,6 +25,11 @@ public class EventSystem {
 	private static State currentState = null;
 	private static transient volatile ArrayList<EEHandler<?>> toAdd = new ArrayList<EEHandler<?>>();
 	private static transient volatile ArrayList<EEHandler<?>> toRemove = new ArrayList<EEHandler<?>>();
+	private static final Object lock = new Object(); // Guards the handler lists.
+	private static final HashMap<Class<?>, Class<? extends EEvent>> eventTypes = new HashMap<Class<?>, Class<? extends EEvent>>(); // Handler
+	// class to the event it handles.
+	private static final ConcurrentHashMap<Class<?>, EEHandler<?>[]> dispatchTable = new ConcurrentHashMap<Class<?>, EEHandler<?>[]>(); // Event
+	// class to the handlers that take it, in priority order.
 
 	/**
 	 * Adds a handler to get events.
@@ -33,7 +40,9 @@ public class EventSystem {
 	 *            The security key.
 	 */
 	public static void addHandler(EEHandler<? extends EEvent> h, SecurityKey k) {
-		toAdd.add(h);
+		synchronized (lock) {
+			toAdd.add(h);
+		}
 	}
 
 	/**
@@ -43,7 +52,14 @@ public class EventSystem {
 	 *            The event.
 	 */
 	public static void addHandlerDirectly(EEHandler<? extends EEvent> h) {
-		handlers.add(h);
+		if (h == null) {
+			throw new IllegalArgumentException("Event handler must not be null.");
+		}
+		synchronized (lock) {
+			getEventType(h); // Resolve the event type now, not on the first event.
+			handlers.add(h);
+			dispatchTable.clear();
+		}
 	}
 
 	/**
@@ -59,18 +75,17 @@ public class EventSystem {
 		if (h == null) {
 			throw new IllegalArgumentException("Event handler must not be null.");
 		}
+		getEventType(h); // Resolve the event type now, not on the first event.
 		int index = h.getPriority();
-		if (handlers.isEmpty()) {
-			handlers.add(h);
-		} else {
-			for (int i = 0; i < handlers.size(); i++) {
-				if (handlers.get(i).getPriority() >= index) {
-					handlers.add(i, h);
-					break;
-				}
+		int pos = handlers.size();
+		for (int i = 0; i < handlers.size(); i++) {
+			if (handlers.get(i).getPriority() >= index) {
+				pos = i;
+				break;
 			}
 		}
-		toAdd.remove(h);
+		handlers.add(pos, h);
+		dispatchTable.clear();
 	}
 
 	/**
@@ -83,7 +98,9 @@ public class EventSystem {
 		if (h == null) {
 			throw new IllegalArgumentException("Event handler must not be null.");
 		}
-		toRemove.add(h);
+		synchronized (lock) {
+			toRemove.add(h);
+		}
 	}
 
 	/**
@@ -94,7 +111,7 @@ public class EventSystem {
 	 */
 	private static void removeAfterWait(EEHandler<? extends EEvent> h) {
 		handlers.remove(h);
-		toRemove.remove(h);
+		dispatchTable.clear();
 	}
 
 	/**
@@ -104,11 +121,18 @@ public class EventSystem {
 	 *            Handler arraylist
 	 */
 	public static void setHandlers(ArrayList<EEHandler<?>> s) {
-		handlers = s;
+		synchronized (lock) {
+			for (EEHandler<?> h : s) {
+				getEventType(h);
+			}
+			handlers = s;
+			dispatchTable.clear();
+		}
 	}
 
 	/**
-	 * Gets the array list of handlers.
+	 * Gets the array list of handlers. The list should not be changed directly,
+	 * use addHandler and removeHandler instead.
 	 *
 	 * @return The handlers.
 	 */
@@ -117,7 +141,10 @@ public class EventSystem {
 	}
 
 	/**
-	 * This will broadcast a message through all handlers.
+	 * This will broadcast a message through all handlers. Only the handlers
+	 * that take exactly the event's class get it, not ones that take a
+	 * superclass of it. An exception thrown by a handler is ignored so the
+	 * other handlers still get the event.
 	 *
 	 * @param e
 	 *            The event.
@@ -135,34 +162,36 @@ public class EventSystem {
 		if (c == null) {
 			throw new IllegalArgumentException("The class must be specified.");
 		}
-		if (!toAdd.isEmpty()) { // Add in the last of the handlers.
-			for (int i = 0; i < toAdd.size(); i++) {
-				if (toAdd.get(i) != null) {
-					addHandlerAfterWait(toAdd.get(i), k);
+		if (!toAdd.isEmpty() || !toRemove.isEmpty()) {
+			synchronized (lock) {
+				int added = 0;
+				try {
+					for (; added < toAdd.size(); added++) { // Add in the last of the handlers.
+						if (toAdd.get(added) != null) {
+							addHandlerAfterWait(toAdd.get(added), k);
+						}
+					}
+				} finally {
+					toAdd.subList(0, added).clear();
 				}
-			}
-		}
-		if (!toRemove.isEmpty()) { // Remove the handlers that should not receive this.
-			for (int i = 0; i < toRemove.size(); i++) {
-				if (toRemove.get(i) != null) {
-					removeAfterWait(toRemove.get(i));
+				for (int i = 0; i < toRemove.size(); i++) { // Remove the handlers that should not receive this.
+					if (toRemove.get(i) != null) {
+						removeAfterWait(toRemove.get(i));
+					}
 				}
+				toRemove.clear();
 			}
 		}
 		if (currentState != null) {
 			currentState.sendEvent(e);
 		}
-		for (int i = 0; i < handlers.size(); i++) { // For all handlers
+		EEHandler<?>[] targets = dispatchTable.get(e.getClass());
+		if (targets == null) {
+			targets = compile(e.getClass());
+		}
+		for (EEHandler<?> h : targets) { // For all handlers of this event.
 			try {
-				if (i < 0 || i > handlers.size() || handlers.get(i) == null) {
-					continue;
-				}
-				EEHandler<? extends EEvent> h = handlers.get(i);
-				// Get method to call.
-				Method m = h.getClass().getMethod("handle", e.getClass());
-				m.setAccessible(true);
-				// Invoke it.
-				m.invoke(h, e);
+				dispatch(h, e);
 			} catch (Exception ex) {
 			}
 		}
@@ -174,7 +203,80 @@ public class EventSystem {
 	 * handlers.
 	 */
 	public static void override() {
-		handlers.clear();
+		synchronized (lock) {
+			handlers.clear();
+			dispatchTable.clear();
+		}
+	}
+
+	/**
+	 * Builds the list of handlers that take exactly the given event class,
+	 * keeping the priority order of the handler list.
+	 *
+	 * @param c
+	 *            The event class.
+	 * @return The handlers.
+	 */
+	private static EEHandler<?>[] compile(Class<?> c) {
+		synchronized (lock) {
+			EEHandler<?>[] targets = dispatchTable.get(c);
+			if (targets != null) {
+				return targets;
+			}
+			ArrayList<EEHandler<?>> matched = new ArrayList<EEHandler<?>>();
+			for (EEHandler<?> h : handlers) {
+				if (h != null && getEventType(h) == c) { // Only handlers of exactly this class.
+					matched.add(h);
+				}
+			}
+			targets = matched.toArray(new EEHandler<?>[matched.size()]);
+			dispatchTable.put(c, targets);
+			return targets;
+		}
+	}
+
+	/**
+	 * Sends the event to a handler whose event type was already checked.
+	 *
+	 * @param h
+	 *            The handler.
+	 * @param e
+	 *            The event.
+	 */
+	@SuppressWarnings("unchecked")
+	static void dispatch(EEHandler<?> h, EEvent e) {
+		((EEHandler<EEvent>) h).handle(e);
+	}
+
+	/**
+	 * Finds the event class that a handler takes. This is looked up once for each
+	 * handler class from its handle method.
+	 *
+	 * @param h
+	 *            The handler.
+	 * @return The event class.
+	 */
+	@SuppressWarnings("unchecked")
+	static Class<? extends EEvent> getEventType(EEHandler<?> h) {
+		synchronized (eventTypes) {
+			Class<? extends EEvent> type = eventTypes.get(h.getClass());
+			if (type != null) {
+				return type;
+			}
+			type = EEvent.class;
+			for (Method m : h.getClass().getMethods()) {
+				// The bridge method takes EEvent, the real one takes the event.
+				if (!m.getName().equals("handle") || m.isBridge() || m.getParameterCount() != 1) {
+					continue;
+				}
+				Class<?> param = m.getParameterTypes()[0];
+				if (EEvent.class.isAssignableFrom(param) && type.isAssignableFrom(param)) {
+					type = (Class<? extends EEvent>) param;
+				}
+			}
+			eventTypes.put(h.getClass(), type);
+			return type;
+		}
 	}
 
 	/**
@@ -190,7 +292,8 @@ public class EventSystem {
 		data += String.format("%-15s %-15s\n", "---", "-----");
 		for (EEHandler<?> h : handlers) {
 			data += String.format("%-15s %-15s\n", "Handler code:", h.hashCode());
-			data += String.format("%-15s %-15s\n", "Handled event:", h.getClass().getName());
+			data += String.format("%-15s %-15s\n", "Handler class:", h.getClass().getName());
+			data += String.format("%-15s %-15s\n", "Handled event:", getEventType(h).getName());
 			data += "-------\n";
 		}
 		sb.append(data);
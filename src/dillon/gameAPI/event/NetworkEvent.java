@@ -28,7 +28,8 @@ public class NetworkEvent extends EEvent {
 	}
 
 	/**
-	 * @return the connector
+	 * @return the connector, or null if the message came from the server to
+	 *         this client.
 	 */
 	public ClientConnector getConnector() {
 		return connector;
@@ -47,7 +48,8 @@ public class NetworkEvent extends EEvent {
 	 * @param Mode
 	 *            What it's doing.
 	 * @param cnct
-	 *            The client connector
+	 *            The client connector, or null for a message from the server to
+	 *            this client.
 	 * @param msg
 	 *            The message
 	 */
@@ -55,7 +57,7 @@ public class NetworkEvent extends EEvent {
 		if (Mode == null) {
 			throw new IllegalArgumentException("The mode must not be null.");
 		}
-		if (cnct == null) {
+		if (cnct == null && Mode != NetworkMode.MESSAGE) {
 			throw new IllegalArgumentException("The connector must not be null.");
 		}
 		if (Mode == NetworkMode.MESSAGE && msg == null) {
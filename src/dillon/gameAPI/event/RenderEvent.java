@@ -16,6 +16,7 @@ public class RenderEvent extends EEvent {
 	}
 
 	private final Graphics2D graphics;
+	private final double interpolation;
 
 	/**
 	 * @return the graphics
@@ -24,6 +25,17 @@ public class RenderEvent extends EEvent {
 		return graphics;
 	}
 
+	/**
+	 * Gets how far this frame is between the last update and the next one, from
+	 * 0 to 1. This is always 1 unless the game loop uses a fixed timestep.
+	 *
+	 * @return the interpolation
+	 * @since V2.2.2
+	 */
+	public double getInterpolation() {
+		return interpolation;
+	}
+
 	/**
 	 * Instantates the event.
 	 *
@@ -31,10 +43,27 @@ public class RenderEvent extends EEvent {
 	 *            The graphics object
 	 */
 	public RenderEvent(Graphics2D g2) {
+		this(g2, 1);
+	}
+
+	/**
+	 * Instantates the event.
+	 *
+	 * @param g2
+	 *            The graphics object
+	 * @param alpha
+	 *            How far the frame is between the last update and the next.
+	 * @since V2.2.2
+	 */
+	public RenderEvent(Graphics2D g2, double alpha) {
 		if (g2 == null) {
 			throw new IllegalArgumentException("Graphics must be provided.");
 		}
+		if (alpha < 0 || alpha > 1) {
+			throw new IllegalArgumentException("The interpolation must be from 0 to 1.");
+		}
 		graphics = g2;
+		interpolation = alpha;
 	}
 
 }
@@ -1,6 +1,5 @@
 package dillon.gameAPI.event;
 
-import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.UUID;
 
@@ -65,12 +64,11 @@ public abstract class State {
 			throw new IllegalArgumentException("The event must not be null.");
 		}
 		for (EEHandler<?> h : handlers) { // For all handlers
+			if (EventSystem.getEventType(h) != e.getClass()) {
+				continue;
+			}
 			try {
-				// Get method to call.
-				Method m = h.getClass().getMethod("handle", e.getClass());
-				m.setAccessible(true);
-				// Invoke it.
-				m.invoke(h, e);
+				EventSystem.dispatch(h, e);
 			} catch (Exception ex) {
 			}
 		}
@@ -86,17 +84,16 @@ public abstract class State {
 		if (h == null) {
 			throw new IllegalArgumentException("The handler must not be null.");
 		}
+		EventSystem.getEventType(h); // Resolve the event type now, not on the first event.
 		int index = h.getPriority();
-		if (handlers.isEmpty()) {
-			handlers.add(h);
-		} else {
-			for (int i = 0; i < handlers.size(); i++) {
-				if (handlers.get(i).getPriority() >= index) {
-					handlers.add(i, h);
-					break;
-				}
+		int pos = handlers.size();
+		for (int i = 0; i < handlers.size(); i++) {
+			if (handlers.get(i).getPriority() >= index) {
+				pos = i;
+				break;
 			}
 		}
+		handlers.add(pos, h);
 	}
 
 	/**
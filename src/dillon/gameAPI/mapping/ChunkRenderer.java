@@ -0,0 +1,268 @@
+package dillon.gameAPI.mapping;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+
+import dillon.gameAPI.utils.AssetCache;
+import dillon.gameAPI.utils.SpriteAtlas;
+
+/**
+ * Draws a map in square chunks. Chunks are only drawn when they are on screen,
+ * are kept until they change, and are thrown away when the camera moves far
+ * from them.
+ *
+ * @author Dillon - Github dg092099
+ * @since V2.2.2
+ */
+class ChunkRenderer {
+	static final int CHUNK_SIZE = 512; // The width and height of a chunk in pixels.
+	private static final int KEEP_DISTANCE = 2; // Chunks this far off screen are kept.
+	private static final BufferedImage EMPTY = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB); // Marks
+	// a chunk without tiles.
+	private final Map map;
+	private final ConcurrentHashMap<Long, BufferedImage> chunks = new ConcurrentHashMap<Long, BufferedImage>(); // The
+	// drawn chunks by position.
+	private volatile long generation = 0; // Changes each time chunks are thrown out.
+
+	/**
+	 * Creates a renderer for the map.
+	 *
+	 * @param m
+	 *            The map.
+	 */
+	ChunkRenderer(Map m) {
+		map = m;
+	}
+
+	/**
+	 * Throws out every chunk so they are redrawn the next time they are seen.
+	 */
+	void invalidate() {
+		generation++;
+		chunks.clear();
+	}
+
+	/**
+	 * Throws out the chunks that overlap the area so only they are redrawn.
+	 *
+	 * @param area
+	 *            The area in pixels.
+	 */
+	void invalidate(Rectangle area) {
+		if (area.isEmpty()) {
+			return;
+		}
+		int left = Math.floorDiv(area.x, CHUNK_SIZE);
+		int right = Math.floorDiv(area.x + area.width - 1, CHUNK_SIZE);
+		int top = Math.floorDiv(area.y, CHUNK_SIZE);
+		int bottom = Math.floorDiv(area.y + area.height - 1, CHUNK_SIZE);
+		generation++;
+		if ((long) (right - left + 1) * (bottom - top + 1) > chunks.size()) {
+			Iterator<Long> it = chunks.keySet().iterator();
+			while (it.hasNext()) {
+				long position = it.next();
+				int chunkX = (int) (position >> 32);
+				int chunkY = (int) position;
+				if (chunkX >= left && chunkX <= right && chunkY >= top && chunkY <= bottom) {
+					it.remove();
+				}
+			}
+			return;
+		}
+		for (int chunkY = top; chunkY <= bottom; chunkY++) {
+			for (int chunkX = left; chunkX <= right; chunkX++) {
+				chunks.remove(key(chunkX, chunkY));
+			}
+		}
+	}
+
+	/**
+	 * Gets the amount of chunks being kept.
+	 *
+	 * @return The amount.
+	 */
+	int size() {
+		return chunks.size();
+	}
+
+	/**
+	 * Draws the chunks that are on screen.
+	 *
+	 * @param g
+	 *            The graphics.
+	 * @param cameraX
+	 *            The camera's x position.
+	 * @param cameraY
+	 *            The camera's y position.
+	 * @param width
+	 *            The width of the screen.
+	 * @param height
+	 *            The height of the screen.
+	 */
+	void draw(Graphics2D g, int cameraX, int cameraY, int width, int height) {
+		int left = Math.floorDiv(cameraX, CHUNK_SIZE);
+		int right = Math.floorDiv(cameraX + width - 1, CHUNK_SIZE);
+		int top = Math.floorDiv(cameraY, CHUNK_SIZE);
+		int bottom = Math.floorDiv(cameraY + height - 1, CHUNK_SIZE);
+		for (int chunkY = top; chunkY <= bottom; chunkY++) {
+			for (int chunkX = left; chunkX <= right; chunkX++) {
+				BufferedImage chunk = chunk(chunkX, chunkY);
+				if (chunk != EMPTY) {
+					g.drawImage(chunk, chunkX * CHUNK_SIZE - cameraX, chunkY * CHUNK_SIZE - cameraY, null);
+				}
+			}
+		}
+		evict(left - KEEP_DISTANCE, top - KEEP_DISTANCE, right + KEEP_DISTANCE, bottom + KEEP_DISTANCE);
+	}
+
+	/**
+	 * Draws the chunks in the area ahead of time so they don't have to be drawn
+	 * when they are first shown.
+	 *
+	 * @param x
+	 *            The x position in pixels.
+	 * @param y
+	 *            The y position in pixels.
+	 * @param width
+	 *            The width in pixels.
+	 * @param height
+	 *            The height in pixels.
+	 */
+	void prepare(int x, int y, int width, int height) {
+		if (width <= 0 || height <= 0) {
+			return;
+		}
+		int left = Math.floorDiv(x, CHUNK_SIZE);
+		int right = Math.floorDiv(x + width - 1, CHUNK_SIZE);
+		int top = Math.floorDiv(y, CHUNK_SIZE);
+		int bottom = Math.floorDiv(y + height - 1, CHUNK_SIZE);
+		for (int chunkY = top; chunkY <= bottom; chunkY++) {
+			for (int chunkX = left; chunkX <= right; chunkX++) {
+				chunk(chunkX, chunkY);
+			}
+		}
+	}
+
+	/**
+	 * Gets a chunk, drawing it if it isn't kept.
+	 *
+	 * @param chunkX
+	 *            The chunk's x position.
+	 * @param chunkY
+	 *            The chunk's y position.
+	 * @return The chunk, or EMPTY if it has no visible tiles.
+	 */
+	private BufferedImage chunk(int chunkX, int chunkY) {
+		Long position = key(chunkX, chunkY);
+		BufferedImage chunk = chunks.get(position);
+		if (chunk == null) {
+			long started = generation;
+			String hash = map.getContentHash();
+			String cacheKey = hash == null ? null : "chunk:" + hash + ":" + chunkX + ":" + chunkY;
+			if (cacheKey != null) {
+				chunk = AssetCache.getImage(cacheKey);
+			}
+			if (chunk == null) {
+				chunk = build(chunkX, chunkY);
+				if (cacheKey != null && map.getContentHash() != null) {
+					AssetCache.putImage(cacheKey, chunk);
+				}
+			}
+			chunks.put(position, chunk);
+			if (started != generation) { // Don't keep it if the map changed while drawing.
+				chunks.remove(position);
+			}
+		}
+		return chunk;
+	}
+
+	/**
+	 * Throws out the chunks outside of the area.
+	 *
+	 * @param left
+	 *            The leftmost chunk to keep.
+	 * @param top
+	 *            The topmost chunk to keep.
+	 * @param right
+	 *            The rightmost chunk to keep.
+	 * @param bottom
+	 *            The bottommost chunk to keep.
+	 */
+	private void evict(int left, int top, int right, int bottom) {
+		Iterator<Long> it = chunks.keySet().iterator();
+		while (it.hasNext()) {
+			long position = it.next();
+			int chunkX = (int) (position >> 32);
+			int chunkY = (int) position;
+			if (chunkX < left || chunkX > right || chunkY < top || chunkY > bottom) {
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * Draws the tiles of one chunk.
+	 *
+	 * @param chunkX
+	 *            The chunk's x position.
+	 * @param chunkY
+	 *            The chunk's y position.
+	 * @return The chunk, or EMPTY if it has no visible tiles.
+	 */
+	private BufferedImage build(int chunkX, int chunkY) {
+		int originX = chunkX * CHUNK_SIZE;
+		int originY = chunkY * CHUNK_SIZE;
+		BufferedImage chunk = null;
+		Graphics2D g = null;
+		ArrayList<Tilesheet> tilesheets = map.getTilesheets();
+		for (int i = 0; i < tilesheets.size(); i++) {
+			Tilesheet tilesheet = tilesheets.get(i);
+			TileGrid grid = tilesheet.getGrid();
+			int tileWidth = tilesheet.getTileWidth();
+			int tileHeight = tilesheet.getTileHeight();
+			if (grid.size() == 0 || tileWidth <= 0 || tileHeight <= 0) {
+				continue;
+			}
+			int left = Math.floorDiv(originX, tileWidth);
+			int right = Math.floorDiv(originX + CHUNK_SIZE - 1, tileWidth);
+			int top = Math.floorDiv(originY, tileHeight);
+			int bottom = Math.floorDiv(originY + CHUNK_SIZE - 1, tileHeight);
+			for (int tileY = top; tileY <= bottom; tileY++) {
+				for (int tileX = left; tileX <= right; tileX++) {
+					for (int depth = 0, n = grid.getDepth(tileX, tileY); depth < n; depth++) {
+						Tile t = grid.get(tileX, tileY, depth);
+						if (!t.isVisible() || t.getTile() == null) {
+							continue;
+						}
+						if (chunk == null) {
+							chunk = SpriteAtlas.createCompatible(CHUNK_SIZE, CHUNK_SIZE);
+							g = chunk.createGraphics();
+						}
+						g.drawImage(t.getTile(), tileX * tileWidth - originX, tileY * tileHeight - originY, null);
+					}
+				}
+			}
+		}
+		if (g != null) {
+			g.dispose();
+		}
+		return chunk != null ? chunk : EMPTY;
+	}
+
+	/**
+	 * Packs a chunk position into a key.
+	 *
+	 * @param chunkX
+	 *            The x position.
+	 * @param chunkY
+	 *            The y position.
+	 * @return The key.
+	 */
+	private static Long key(int chunkX, int chunkY) {
+		return ((long) chunkX << 32) | (chunkY & 0xFFFFFFFFL);
+	}
+}
@@ -1,12 +1,17 @@
 package dillon.gameAPI.mapping;
 
+import java.awt.AlphaComposite;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.logging.Logger;
 
+import javax.script.Compilable;
+import javax.script.CompiledScript;
 import javax.script.Invocable;
 import javax.script.ScriptEngine;
 import javax.script.ScriptEngineManager;
@@ -29,9 +34,12 @@ import dillon.gameAPI.scripting.bridges.EntityRegistry;
  */
 public class Map {
 	private ArrayList<Tilesheet> tilesheets = new ArrayList<Tilesheet>(); // Tilesheets
+	private HashMap<String, Tilesheet> tilesheetIds = new HashMap<String, Tilesheet>(); // Tilesheets by id.
 	private BufferedImage backgroundImage; // Background image
 	private File backgroundMusicFile; // Background music.
 	private ArrayList<Tile> tiles = new ArrayList<Tile>(); // Tiles
+	private IdentityHashMap<Tile, Integer> tileIndexes = new IdentityHashMap<Tile, Integer>(); // Where each
+	// tile is in tiles, so removing one doesn't search the list.
 	private ArrayList<TileEvent> tileEvents = new ArrayList<TileEvent>(); // Tile events.
 	private Tilesheet inUse; // In use tilesheet.
 	private ScriptEngine scriptEngine; // The script engine.
@@ -87,10 +95,63 @@ public class Map {
 		try {
 			scriptEngine.eval(script);
 		} catch (ScriptException e) {
-			e.printStackTrace();
-			Logger.getLogger("Map").severe(
-					"There was a problem running the script: " + e.getMessage() + " on line: " + e.getLineNumber());
+			scriptFailed(e);
+		}
+	}
+
+	private final ArrayList<Object> deferredScripts = new ArrayList<Object>(); // Scripts
+	// waiting for the map to be shown, compiled if the engine can.
+
+	/**
+	 * Puts a script for use in the map, but doesn't run it until
+	 * runDeferredScripts is called. The script is compiled now if the engine
+	 * can, so that it can be read on the thread loading the map without
+	 * changing anything in the game.
+	 *
+	 * @param script
+	 *            The script.
+	 */
+	synchronized void deferScript(String script) {
+		if (scriptEngine instanceof Compilable) {
+			try {
+				deferredScripts.add(((Compilable) scriptEngine).compile(script));
+			} catch (ScriptException e) {
+				scriptFailed(e);
+			}
+		} else {
+			deferredScripts.add(script);
+		}
+	}
+
+	/**
+	 * Runs the scripts put with deferScript, in the order they were put. Each is
+	 * only run once.
+	 */
+	synchronized void runDeferredScripts() {
+		for (Object script : deferredScripts) {
+			if (script instanceof CompiledScript) {
+				try {
+					((CompiledScript) script).eval();
+				} catch (ScriptException e) {
+					scriptFailed(e);
+				}
+			} else {
+				putScript((String) script);
+			}
 		}
+		deferredScripts.clear();
+	}
+
+	/**
+	 * Logs a script that couldn't be run.
+	 *
+	 * @param e
+	 *            The problem.
+	 */
+	private void scriptFailed(ScriptException e) {
+		e.printStackTrace();
+		Logger.getLogger("Map").severe(
+				"There was a problem running the script: " + e.getMessage() + " on line: " + e.getLineNumber());
 	}
 
 	/**
@@ -144,6 +205,9 @@ public class Map {
 			throw new IllegalArgumentException("The tilesheet must not be null.");
 		}
 		tilesheets.add(t);
+		if (t.getId() != null && !tilesheetIds.containsKey(t.getId())) {
+			tilesheetIds.put(t.getId(), t);
+		}
 	}
 
 	/**
@@ -156,7 +220,78 @@ public class Map {
 		if (t == null) {
 			throw new IllegalArgumentException("The tile must not be null.");
 		}
-		tiles.add(t);
+		list(t);
+		index(t);
+	}
+
+	/**
+	 * Adds the tile to the end of the tile list, unless it is already in it.
+	 *
+	 * @param t
+	 *            The tile.
+	 */
+	private void list(Tile t) {
+		if (!tileIndexes.containsKey(t)) {
+			tileIndexes.put(t, tiles.size());
+			tiles.add(t);
+		}
+	}
+
+	/**
+	 * Takes the tile out of the tile list by moving the last tile into its
+	 * place, so the list isn't shifted.
+	 *
+	 * @param t
+	 *            The tile.
+	 * @return If it was in the list.
+	 */
+	private boolean unlist(Tile t) {
+		Integer index = tileIndexes.remove(t);
+		if (index == null || index >= tiles.size() || tiles.get(index) != t) {
+			// The list was changed through getTiles, so find where the tiles are now.
+			tileIndexes.clear();
+			for (int i = 0; i < tiles.size(); i++) {
+				tileIndexes.put(tiles.get(i), i);
+			}
+			index = tileIndexes.remove(t);
+			if (index == null) {
+				return false;
+			}
+		}
+		Tile last = tiles.remove(tiles.size() - 1);
+		if (last != t) {
+			tiles.set(index, last);
+			tileIndexes.put(last, index);
+		}
+		return true;
+	}
+
+	/**
+	 * Puts the tile in its tilesheet's index.
+	 *
+	 * @param t
+	 *            The tile.
+	 */
+	private void index(Tile t) {
+		if (t.getParentTilesheet() == null) {
+			t.setParentTilesheet(findTilesheet(t.getTilesheetId()));
+		}
+		if (t.getParentTilesheet() != null) {
+			t.getParentTilesheet().getGrid().put(t);
+		}
+	}
+
+	/**
+	 * Takes the tile out of its tilesheet's index.
+	 *
+	 * @param t
+	 *            The tile.
+	 */
+	private void unindex(Tile t) {
+		Tilesheet sheet = t.getParentTilesheet();
+		if (sheet != null) {
+			sheet.getGrid().remove(t, t.getxPos(), t.getyPos());
+		}
 	}
 
 	/**
@@ -166,13 +301,7 @@ public class Map {
 	 *            The id
 	 */
 	public void setInUseTilesheet(String id) {
-		for (Tilesheet t : tilesheets) {
-			if (t.getId().equals(id)) {
-				inUse = t;
-				return;
-			}
-		}
-		throw new RuntimeException("Missing tilesheet: " + id);
+		inUse = getTilesheetByName(id);
 	}
 
 	/**
@@ -183,15 +312,10 @@ public class Map {
 	 *            X position
 	 * @param y
 	 *            Y position
-	 * @return The tile.
+	 * @return The tile, or the one on top if there are several.
 	 */
 	public Tile getTileAtPosition(int x, int y) {
-		for (Tile t : tiles) {
-			if (t.getxPos() == x && t.getyPos() == y && inUse.getId().equals(t.getTilesheetId())) {
-				return t;
-			}
-		}
-		return null;
+		return inUse.getGrid().get(x, y);
 	}
 
 	/**
@@ -214,7 +338,8 @@ public class Map {
 	}
 
 	/**
-	 * Gets the tiles.
+	 * Gets the tiles. Removing a tile moves the last one into its place, so
+	 * the tiles aren't kept in the order they were added.
 	 *
 	 * @return The tiles arraylist.
 	 */
@@ -248,12 +373,33 @@ public class Map {
 	 * @return The tilesheet.
 	 */
 	public Tilesheet getTilesheetByName(String tilesheetId) {
+		Tilesheet t = findTilesheet(tilesheetId);
+		if (t == null) {
+			throw new RuntimeException("Missing tilesheet: " + tilesheetId);
+		}
+		return t;
+	}
+
+	/**
+	 * Finds the tilesheet by name.
+	 *
+	 * @param tilesheetId
+	 *            The name
+	 * @return The tilesheet, or null if it is missing.
+	 */
+	private Tilesheet findTilesheet(String tilesheetId) {
+		Tilesheet found = tilesheetIds.get(tilesheetId);
+		if (found != null && tilesheetId.equals(found.getId())) {
+			return found;
+		}
+		// The list can be changed through getTilesheets, so look through it too.
 		for (Tilesheet t : tilesheets) {
 			if (t.getId().equals(tilesheetId)) {
+				tilesheetIds.put(tilesheetId, t);
 				return t;
 			}
 		}
-		throw new RuntimeException("Missing tilesheet: " + tilesheetId);
+		return null;
 	}
 
 	HashMap<String, Integer> positionVariables = new HashMap<String, Integer>();
@@ -309,12 +455,24 @@ public class Map {
 		}
 	}
 
-	private BufferedImage img;
+	private volatile BufferedImage img; // The whole map, only made when asked for.
+	private final ChunkRenderer renderer = new ChunkRenderer(this); // Draws the map to the screen.
 
 	/**
-	 * Causes the map to render.
+	 * Causes the map to render. The map is redrawn the next time it is shown.
 	 */
 	public void render() {
+		pristine = false;
+		img = null;
+		renderer.invalidate();
+	}
+
+	/**
+	 * Draws the whole map into one image.
+	 *
+	 * @return The image.
+	 */
+	private BufferedImage renderAll() {
 		ArrayList<BufferedImage> tilesheetImgs = new ArrayList<BufferedImage>();
 		for (Tilesheet t : tilesheets) {
 			BufferedImage render = t.render();
@@ -330,21 +488,186 @@ public class Map {
 				height = img.getHeight();
 			}
 		}
-		img = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-		Graphics2D g = img.createGraphics();
+		BufferedImage all = new BufferedImage(Math.max(width, 1), Math.max(height, 1),
+				BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = all.createGraphics();
 		for (BufferedImage img : tilesheetImgs) {
 			g.drawImage(img, 0, 0, null);
 		}
 		g.dispose();
+		return all;
 	}
 
 	/**
-	 * Gets the rendering of the map.
+	 * Gets the rendering of the whole map. This is made when it is first asked
+	 * for after a change, the map is drawn to the screen in chunks instead.
 	 *
 	 * @return The render.
 	 */
 	public BufferedImage getRender() {
-		return img;
+		BufferedImage render = img;
+		if (render == null) {
+			render = renderAll();
+			img = render;
+		}
+		return render;
+	}
+
+	private volatile String contentHash; // The hash of the file the map was loaded from.
+	private volatile boolean pristine = true; // If the map hasn't changed since it was loaded.
+
+	/**
+	 * Sets the hash of the file the map was loaded from.
+	 *
+	 * @param hash
+	 *            The hash.
+	 */
+	void setContentHash(String hash) {
+		contentHash = hash;
+	}
+
+	/**
+	 * Gets the hash of the file the map was loaded from. Two maps with the same
+	 * hash look the same until one of them is changed.
+	 *
+	 * @return The hash, or null if the map has changed since it was loaded.
+	 */
+	String getContentHash() {
+		return pristine ? contentHash : null;
+	}
+
+	private int editDepth = 0; // How many edits have begun without being committed.
+	private Rectangle dirty; // The area changed during the edit.
+
+	/**
+	 * Starts a batch of tile changes. Until commitEdit is called, spawning and
+	 * removing tiles doesn't redraw anything, and the changed area is redrawn
+	 * once when the edit is committed. Edits may be nested.
+	 * @since V2.2.2
+	 */
+	public synchronized void beginEdit() {
+		editDepth++;
+	}
+
+	/**
+	 * Finishes a batch of tile changes started by beginEdit and redraws the area
+	 * that changed.
+	 * @since V2.2.2
+	 */
+	public synchronized void commitEdit() {
+		if (editDepth == 0) {
+			throw new IllegalStateException("There is no edit to commit.");
+		}
+		editDepth--;
+		if (editDepth == 0 && dirty != null) {
+			Rectangle area = dirty;
+			dirty = null;
+			redraw(area);
+		}
+	}
+
+	/**
+	 * Marks the cell of the tile as changed.
+	 *
+	 * @param t
+	 *            The tile.
+	 */
+	private synchronized void changed(Tile t) {
+		pristine = false;
+		Tilesheet sheet = t.getParentTilesheet();
+		if (sheet == null) {
+			render();
+			return;
+		}
+		Rectangle area = new Rectangle(t.getxPos() * sheet.getTileWidth(), t.getyPos() * sheet.getTileHeight(),
+				sheet.getTileWidth(), sheet.getTileHeight());
+		if (editDepth > 0) {
+			dirty = dirty == null ? area : dirty.union(area);
+		} else {
+			redraw(area);
+		}
+	}
+
+	/**
+	 * Redraws only the area of the map.
+	 *
+	 * @param area
+	 *            The area in pixels.
+	 */
+	private void redraw(Rectangle area) {
+		renderer.invalidate(area);
+		BufferedImage render = img;
+		if (render == null) {
+			return;
+		}
+		if (area.x < 0 || area.y < 0 || area.x + area.width > render.getWidth()
+				|| area.y + area.height > render.getHeight()) {
+			img = null; // The map grew, so it's made again when it's asked for.
+			return;
+		}
+		Graphics2D g = render.createGraphics();
+		g.setClip(area);
+		g.setComposite(AlphaComposite.Clear);
+		g.fillRect(area.x, area.y, area.width, area.height);
+		g.setComposite(AlphaComposite.SrcOver);
+		for (Tilesheet sheet : tilesheets) {
+			TileGrid grid = sheet.getGrid();
+			int tileWidth = sheet.getTileWidth();
+			int tileHeight = sheet.getTileHeight();
+			if (grid.size() == 0 || tileWidth <= 0 || tileHeight <= 0) {
+				continue;
+			}
+			int left = Math.floorDiv(area.x, tileWidth);
+			int right = Math.floorDiv(area.x + area.width - 1, tileWidth);
+			int top = Math.floorDiv(area.y, tileHeight);
+			int bottom = Math.floorDiv(area.y + area.height - 1, tileHeight);
+			for (int tileY = top; tileY <= bottom; tileY++) {
+				for (int tileX = left; tileX <= right; tileX++) {
+					for (int depth = 0, n = grid.getDepth(tileX, tileY); depth < n; depth++) {
+						Tile t = grid.get(tileX, tileY, depth);
+						if (t.isVisible()) {
+							g.drawImage(t.getTile(), tileX * tileWidth, tileY * tileHeight, null);
+						}
+					}
+				}
+			}
+		}
+		g.dispose();
+	}
+
+	/**
+	 * Draws the part of the map that is on screen.
+	 *
+	 * @param g
+	 *            The graphics.
+	 * @param cameraX
+	 *            The camera's x position.
+	 * @param cameraY
+	 *            The camera's y position.
+	 * @param width
+	 *            The width of the screen.
+	 * @param height
+	 *            The height of the screen.
+	 */
+	void draw(Graphics2D g, int cameraX, int cameraY, int width, int height) {
+		renderer.draw(g, cameraX, cameraY, width, height);
+	}
+
+	/**
+	 * Draws the part of the map that would be on screen ahead of time, so that
+	 * the first frame doesn't have to.
+	 *
+	 * @param cameraX
+	 *            The camera's x position.
+	 * @param cameraY
+	 *            The camera's y position.
+	 * @param width
+	 *            The width of the screen.
+	 * @param height
+	 *            The height of the screen.
+	 */
+	void prepare(int cameraX, int cameraY, int width, int height) {
+		renderer.prepare(cameraX, cameraY, width, height);
 	}
 
 	/**
@@ -358,9 +681,10 @@ public class Map {
 
 	// Scripting Commands
 	/**
-	 * This method spawns a tile and gives it to whatever spawned it. Note: When
-	 * manipulating tiles this class' render method should be called to invoke the
-	 * change.
+	 * This method spawns a tile and gives it to whatever spawned it. Only the
+	 * tile's cell is redrawn; use beginEdit and commitEdit around many changes.
+	 * When changing a tile directly this class' render method should be called
+	 * to invoke the change.
 	 *
 	 * @param x
 	 *            The x position.
@@ -386,8 +710,9 @@ public class Map {
 		t.setSheetPosX(sheetX);
 		t.setSheetPosY(sheetY);
 		t.updateImage();
-		tiles.add(t);
-		render();
+		list(t);
+		index(t);
+		changed(t);
 		return t;
 	}
 
@@ -400,16 +725,16 @@ public class Map {
 	 *            The y position
 	 * @param tilesheet
 	 *            The tilesheet
-	 * @return The tile.
+	 * @return The tile, or the one on top if there are several.
 	 */
 	public Tile getTile(int x, int y, String tilesheet) {
-		if (getTilesheetByName(tilesheet) == null) {
+		Tilesheet sheet = findTilesheet(tilesheet);
+		if (sheet == null) {
 			throw new TileException("The referenced tilesheet is missing.", x, y, tilesheet);
 		}
-		for (Tile t : tiles) {
-			if (t.getxPos() == x && t.getyPos() == y && t.getTilesheetId().equals(tilesheet)) {
-				return t;
-			}
+		Tile t = sheet.getGrid().get(x, y);
+		if (t != null) {
+			return t;
 		}
 		Logger.getLogger(Map.class.getName()).severe("The script has referenced a tile that doesn't exist.");
 		return null;
@@ -426,20 +751,16 @@ public class Map {
 	 *            The tilesheet
 	 */
 	public void removeTile(int x, int y, String tilesheet) {
-		if (getTilesheetByName(tilesheet) == null) {
+		Tilesheet sheet = findTilesheet(tilesheet);
+		if (sheet == null) {
 			throw new TileException("The referenced tilesheet is missing.", x, y, tilesheet);
 		}
-		ArrayList<Integer> toRemove = new ArrayList<Integer>();
-		for (int i = 0; i < tiles.size(); i++) {
-			Tile t = tiles.get(i);
-			if (t.getxPos() == x && t.getyPos() == y && t.getTilesheetId().equals(tilesheet)) {
-				toRemove.add(i);
-			}
-		}
-		for (Integer i : toRemove) {
-			tiles.remove(i);
+		Tile t;
+		while ((t = sheet.getGrid().get(x, y)) != null) {
+			unlist(t);
+			unindex(t);
+			changed(t);
 		}
-		render();
 	}
 
 	/**
@@ -449,7 +770,10 @@ public class Map {
 	 *            The tile
 	 */
 	public void removeTile(Tile t) {
-		tiles.remove(t);
+		if (unlist(t)) {
+			unindex(t);
+			changed(t);
+		}
 	}
 
 	/**
@@ -0,0 +1,216 @@
+package dillon.gameAPI.mapping;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import dillon.gameAPI.errors.MapException;
+
+/**
+ * Converts version 2 maps into version 3 maps. The text files describing the
+ * tilesheets, tiles and events are packed into one binary file, everything else
+ * in the map is copied as it is.
+ *
+ * @author Dillon - Github dg092099
+ * @since V2.2.2
+ */
+public class MapConverter {
+	private static final String[] TEXT_DATA = { "version.txt", "tilesheets.info", "tiles.info", "events.info" };
+
+	private MapConverter() {
+	}
+
+	/**
+	 * Converts a version 2 map.
+	 *
+	 * @param in
+	 *            The version 2 map.
+	 * @param out
+	 *            Where the version 3 map is written. It isn't closed.
+	 */
+	public static void convert(InputStream in, OutputStream out) {
+		if (in == null || out == null) {
+			throw new IllegalArgumentException("The streams must not be null.");
+		}
+		LinkedHashMap<String, byte[]> entries = MapLoader.readEntries(in);
+		String[] version = MapLoader.lines(entries, "version.txt");
+		if (version == null || MapLoader.count(version, "version.txt") != MapLoader.TEXT_VERSION) {
+			throw new MapException("Only version " + MapLoader.TEXT_VERSION + " maps can be converted.");
+		}
+		byte[] data = pack(entries);
+		try {
+			ZipOutputStream zos = new ZipOutputStream(out);
+			write(zos, "version.txt", Integer.toString(MapLoader.VERSION).getBytes(StandardCharsets.UTF_8));
+			write(zos, MapLoader.BINARY_DATA, data);
+			for (java.util.Map.Entry<String, byte[]> entry : entries.entrySet()) {
+				if (!isTextData(entry.getKey())) {
+					write(zos, entry.getKey(), entry.getValue());
+				}
+			}
+			zos.finish();
+			zos.flush();
+		} catch (IOException e) {
+			e.printStackTrace();
+			throw new MapException("The map could not be written.");
+		}
+	}
+
+	/**
+	 * Packs the text files of a version 2 map into binary data.
+	 *
+	 * @param entries
+	 *            The files in the map.
+	 * @return The binary data.
+	 */
+	private static byte[] pack(LinkedHashMap<String, byte[]> entries) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		try {
+			out.writeInt(MapLoader.MAGIC);
+			HashMap<String, Integer> sheets = new HashMap<String, Integer>();
+			String[] lines = MapLoader.lines(entries, "tilesheets.info");
+			int amt = lines == null ? 0 : MapLoader.count(lines, "tilesheets.info");
+			out.writeInt(amt);
+			for (int i = 1; i <= amt; i++) {
+				String[] parts = lines[i].split(":");
+				sheets.put(parts[0], i - 1);
+				writeString(out, parts[0]);
+				out.writeInt(Integer.parseInt(parts[1]));
+				out.writeInt(Integer.parseInt(parts[2]));
+			}
+			lines = MapLoader.lines(entries, "tiles.info");
+			amt = lines == null ? 0 : MapLoader.count(lines, "tiles.info");
+			out.writeInt(amt);
+			for (int i = 1; i <= amt; i++) {
+				String[] parts = lines[i].split(":");
+				writeShort(out, sheet(sheets, parts[0]), 0, 0xFFFF, "tilesheet index");
+				out.writeInt(Integer.parseInt(parts[1]));
+				out.writeInt(Integer.parseInt(parts[2]));
+				writeShort(out, Integer.parseInt(parts[5]), Short.MIN_VALUE, Short.MAX_VALUE, "tilesheet x position");
+				writeShort(out, Integer.parseInt(parts[6]), Short.MIN_VALUE, Short.MAX_VALUE, "tilesheet y position");
+				int flags = (Boolean.parseBoolean(parts[3]) ? MapLoader.VISIBLE : 0)
+						| (Boolean.parseBoolean(parts[4]) ? MapLoader.SOLID : 0);
+				out.writeByte(flags);
+			}
+			lines = MapLoader.lines(entries, "events.info");
+			amt = lines == null ? 0 : MapLoader.count(lines, "events.info");
+			out.writeInt(amt);
+			for (int i = 1; i <= amt; i++) {
+				String[] parts = lines[i].split(":");
+				out.writeByte(TileEvent.TileEventType.valueOf(parts[0]).ordinal());
+				writeShort(out, sheet(sheets, parts[3]), 0, 0xFFFF, "tilesheet index");
+				out.writeInt(Integer.parseInt(parts[1]));
+				out.writeInt(Integer.parseInt(parts[2]));
+				writeString(out, parts[4]);
+				writeString(out, parts[5]);
+			}
+			out.close();
+		} catch (IOException | ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+			e.printStackTrace();
+			throw new MapException("The map you have provided is corrupt.");
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Gets the index of a tilesheet in the binary data.
+	 *
+	 * @param sheets
+	 *            The indexes by id.
+	 * @param id
+	 *            The id.
+	 * @return The index.
+	 */
+	private static int sheet(HashMap<String, Integer> sheets, String id) {
+		Integer index = sheets.get(id);
+		if (index == null) {
+			throw new MapException("Missing tilesheet: " + id);
+		}
+		return index;
+	}
+
+	/**
+	 * Writes a number as two bytes, the way MapLoader reads it.
+	 *
+	 * @param out
+	 *            The output.
+	 * @param value
+	 *            The number.
+	 * @param min
+	 *            The lowest number that fits.
+	 * @param max
+	 *            The highest number that fits.
+	 * @param name
+	 *            What the number is, for the error.
+	 * @throws IOException
+	 *             If it couldn't be written.
+	 */
+	private static void writeShort(DataOutputStream out, int value, int min, int max, String name)
+			throws IOException {
+		if (value < min || value > max) {
+			throw new MapException("The " + name + " is out of range: " + value);
+		}
+		out.writeShort(value);
+	}
+
+	/**
+	 * Writes a string as its length and its UTF-8 bytes, the way
+	 * MapLoader.readString reads it.
+	 *
+	 * @param out
+	 *            The output.
+	 * @param s
+	 *            The string.
+	 * @throws IOException
+	 *             If it couldn't be written.
+	 */
+	private static void writeString(DataOutputStream out, String s) throws IOException {
+		byte[] b = s.getBytes(StandardCharsets.UTF_8);
+		if (b.length > 0xFFFF) {
+			throw new MapException("The text is too long: " + s.substring(0, 32));
+		}
+		out.writeShort(b.length);
+		out.write(b);
+	}
+
+	/**
+	 * Writes a file into the zip.
+	 *
+	 * @param zos
+	 *            The zip.
+	 * @param name
+	 *            The file name.
+	 * @param content
+	 *            The contents.
+	 * @throws IOException
+	 *             If it couldn't be written.
+	 */
+	private static void write(ZipOutputStream zos, String name, byte[] content) throws IOException {
+		zos.putNextEntry(new ZipEntry(name));
+		zos.write(content);
+		zos.closeEntry();
+	}
+
+	/**
+	 * Checks if the file is one of the text files replaced by the binary data.
+	 *
+	 * @param name
+	 *            The file name.
+	 * @return If it is replaced.
+	 */
+	private static boolean isTextData(String name) {
+		for (String s : TEXT_DATA) {
+			if (s.equals(name)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
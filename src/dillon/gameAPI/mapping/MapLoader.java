@@ -1,34 +1,111 @@
 package dillon.gameAPI.mapping;
 
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.file.Files;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Scanner;
+import java.util.LinkedHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
 import javax.imageio.ImageIO;
+import javax.imageio.stream.MemoryCacheImageInputStream;
 
 import dillon.gameAPI.core.Core;
 import dillon.gameAPI.errors.MapException;
-import dillon.gameAPI.utils.MainUtilities;
+import dillon.gameAPI.utils.AssetCache;
+import dillon.gameAPI.utils.SpriteAtlas;
 
 /**
- * This class loads the map information and makes a map object.
+ * This class loads the map information and makes a map object. The map is read
+ * straight from the zip into memory, nothing is extracted to disk except for the
+ * music. Version 3 maps keep their tilesheets, tiles and events in one binary
+ * file, version 2 maps in text files. MapConverter converts the old format.
  *
  * @author Dillon - Github dg092099
  * @since V2.2.0
  */
 public class MapLoader {
-	private static File extracted;
-	private static Map map;
-	public static final int VERSION = 2;
+	public static final int VERSION = 3;
+	static final int TEXT_VERSION = 2; // The oldest version that can be loaded.
+	static final String BINARY_DATA = "map.bin"; // The name of the binary data in a version 3 map.
+	static final int MAGIC = 0x44474D50; // "DGMP", the start of the binary data.
+	static final int VISIBLE = 1, SOLID = 2; // The flags of a tile record.
+	private final LinkedHashMap<String, byte[]> entries; // The contents of the zip by name.
+	private final HashMap<String, String> hashes = new HashMap<String, String>(); // The hash of each file.
+	private final Map map;
+	private final HashMap<String, Future<BufferedImage>> tilesheets = new HashMap<String, Future<BufferedImage>>();
+	private Future<BufferedImage> background; // The background being decoded.
+	private final loadListener listener; // Told how far along the load is.
+	private int tileCount = 0, tilesAdded = 0; // The tiles in the map, and the ones made so far.
+	private static final ExecutorService decoder = Executors.newFixedThreadPool(
+			Math.max(1, Runtime.getRuntime().availableProcessors()), new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "Map Decoder");
+					t.setDaemon(true);
+					return t;
+				}
+			}); // Decodes the images of maps.
+
+	/**
+	 * The parts of loading a map, in the order they finish. Images are decoded
+	 * while the map is parsed, so DECODE may start before PARSE is done.
+	 *
+	 * @author Dillon - Github dg092099
+	 * @since V2.2.2
+	 */
+	public static enum LoadStage {
+		EXTRACT, PARSE, DECODE, RENDER
+	}
+
+	/**
+	 * Is told how far along a map load is. It is called on the thread loading
+	 * the map.
+	 *
+	 * @author Dillon - Github dg092099
+	 * @since V2.2.2
+	 */
+	public static interface loadListener {
+		/**
+		 * Called as the map loads.
+		 *
+		 * @param stage
+		 *            The part being loaded.
+		 * @param done
+		 *            How much of that part is done, from 0 to 1.
+		 */
+		public void progress(LoadStage stage, float done);
+	}
+
+	/**
+	 * Creates a loader for the contents of a map.
+	 *
+	 * @param entries
+	 *            The files in the map.
+	 * @param listener
+	 *            The listener, or null.
+	 */
+	private MapLoader(LinkedHashMap<String, byte[]> entries, loadListener listener) {
+		this.entries = entries;
+		this.listener = listener;
+		map = new Map();
+	}
 
 	/**
 	 * Loads the map from the input stream.
@@ -38,49 +115,226 @@ public class MapLoader {
 	 * @return The map
 	 */
 	public static Map load(InputStream is) {
-		map = new Map();
-		extractFiles(is);
-		if (!checkVersion()) {
-			deleteDirectory(extracted);
+		return load(is, null);
+	}
+
+	/**
+	 * Loads the map from the input stream, telling the listener how far along it
+	 * is.
+	 *
+	 * @param is
+	 *            The stream.
+	 * @param listener
+	 *            The listener, or null.
+	 * @return The map
+	 * @since V2.2.2
+	 */
+	public static Map load(InputStream is, loadListener listener) {
+		return load(is, listener, false);
+	}
+
+	/**
+	 * Loads the map from the input stream, telling the listener how far along it
+	 * is.
+	 *
+	 * @param is
+	 *            The stream.
+	 * @param listener
+	 *            The listener, or null.
+	 * @param deferScripts
+	 *            If the map's scripts are only compiled, to be run when the map
+	 *            is shown, so that loading on another thread doesn't change the
+	 *            game.
+	 * @return The map
+	 */
+	static Map load(InputStream is, loadListener listener, boolean deferScripts) {
+		report(listener, LoadStage.EXTRACT, 0, 1);
+		LinkedHashMap<String, byte[]> entries = readEntries(is);
+		report(listener, LoadStage.EXTRACT, 1, 1);
+		MapLoader loader = new MapLoader(entries, listener);
+		String contentHash = loader.hashEntries();
+		int version = loader.checkVersion();
+		if (version < TEXT_VERSION || version > VERSION) {
 			throw new MapException("The map you are trying to load is out of date.");
 		}
-		loadMusic();
-		loadBackground();
-		loadTilesheetImages();
-		loadTilesheetMeta();
-		loadTilesMeta();
-		loadEventsMeta();
-		loadScripts();
-		deleteDirectory(extracted);
-		map.render();
-		return map;
+		// The images are decoded while the rest of the map is read, and are only
+		// waited for once all of the tiles have been made.
+		loader.loadBackground();
+		loader.loadTilesheetImages();
+		try {
+			loader.loadMusic();
+			report(listener, LoadStage.PARSE, 0, 1);
+			if (version == VERSION) {
+				loader.loadBinary();
+			} else {
+				loader.loadTilesheetMeta();
+				loader.loadTilesMeta();
+				loader.loadEventsMeta();
+			}
+			loader.awaitImages();
+			loader.loadScripts(deferScripts); // After the images, scripts may use them.
+			report(listener, LoadStage.PARSE, 1, 1);
+		} finally {
+			loader.cancel();
+		}
+		report(listener, LoadStage.RENDER, 0, 1);
+		// Nothing has been drawn yet, so there is no need to call render. The
+		// chunks of a map that wasn't changed by its scripts can be shared through
+		// the asset cache.
+		loader.map.setContentHash(contentHash);
+		loader.map.prepare(Camera.getXPos(), Camera.getYPos(), Core.getWidth(), Core.getHeight());
+		report(listener, LoadStage.RENDER, 1, 1);
+		return loader.map;
 	}
 
 	/**
-	 * Extracts the files for reading.
+	 * Tells the listener how far along the load is.
+	 *
+	 * @param listener
+	 *            The listener, or null.
+	 * @param stage
+	 *            The part being loaded.
+	 * @param done
+	 *            How many things are done.
+	 * @param total
+	 *            How many things there are.
+	 */
+	private static void report(loadListener listener, LoadStage stage, int done, int total) {
+		if (listener == null) {
+			return;
+		}
+		try {
+			listener.progress(stage, total <= 0 ? 1 : (float) done / total);
+		} catch (RuntimeException e) {
+			e.printStackTrace(); // A broken listener shouldn't stop the map from loading.
+		}
+	}
+
+	/**
+	 * Waits for the images to be decoded, gives each tilesheet its image and
+	 * cuts the tiles from them, then sets the background.
+	 */
+	private void awaitImages() {
+		ArrayList<Tilesheet> sheets = map.getTilesheets();
+		int total = sheets.size() + (background != null ? 1 : 0);
+		int done = 0;
+		report(listener, LoadStage.DECODE, done, total);
+		for (Tilesheet sheet : sheets) {
+			sheet.setImg(await(tilesheets.get(sheet.getId()), "Could not load tilesheets."));
+			report(listener, LoadStage.DECODE, ++done, total);
+		}
+		for (Tile t : map.getTiles()) {
+			t.updateImage();
+		}
+		if (background != null) {
+			map.setBackground(await(background, "The background image could not be loaded."));
+			report(listener, LoadStage.DECODE, ++done, total);
+		}
+	}
+
+	/**
+	 * Hashes every file in the map.
+	 *
+	 * @return The hash of the whole map.
+	 */
+	private String hashEntries() {
+		String[] parts = new String[entries.size() * 2];
+		int i = 0;
+		for (java.util.Map.Entry<String, byte[]> entry : entries.entrySet()) {
+			String hash = AssetCache.hash(entry.getValue());
+			hashes.put(entry.getKey(), hash);
+			parts[i++] = entry.getKey();
+			parts[i++] = hash;
+		}
+		return AssetCache.hash(parts);
+	}
+
+	/**
+	 * Starts decoding an image on the decoder threads. If the same image has
+	 * been decoded before and is still in the asset cache, that is used instead.
+	 *
+	 * @param name
+	 *            The file name of the image.
+	 * @return The image being decoded.
+	 */
+	private Future<BufferedImage> decode(String name) {
+		final byte[] data = entries.get(name);
+		final String key = "image:" + hashes.get(name);
+		BufferedImage cached = AssetCache.getImage(key);
+		if (cached != null) {
+			return CompletableFuture.completedFuture(cached);
+		}
+		return decoder.submit(new Callable<BufferedImage>() {
+			@Override
+			public BufferedImage call() throws IOException {
+				// Read from memory so ImageIO doesn't make a cache file.
+				BufferedImage img = ImageIO.read(new MemoryCacheImageInputStream(new ByteArrayInputStream(data)));
+				if (img != null) {
+					img = SpriteAtlas.toCompatible(img); // Tiles are cut from it and drawn into chunks.
+					AssetCache.putImage(key, img);
+				}
+				return img;
+			}
+		});
+	}
+
+	/**
+	 * Waits for an image to be decoded.
+	 *
+	 * @param image
+	 *            The image being decoded.
+	 * @param error
+	 *            The message if it fails.
+	 * @return The image.
+	 */
+	private static BufferedImage await(Future<BufferedImage> image, String error) {
+		try {
+			return image.get();
+		} catch (ExecutionException e) {
+			e.getCause().printStackTrace();
+			throw new MapException(error);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new MapException(error);
+		}
+	}
+
+	/**
+	 * Stops decoding any image that wasn't used.
+	 */
+	private void cancel() {
+		if (background != null) {
+			background.cancel(false);
+		}
+		for (Future<BufferedImage> f : tilesheets.values()) {
+			f.cancel(false);
+		}
+	}
+
+	/**
+	 * Reads every file in the zip into memory.
 	 *
 	 * @param is
 	 *            The input stream.
+	 * @return The files by name, in the order they were in the zip.
 	 */
-	private static void extractFiles(InputStream is) {
+	static LinkedHashMap<String, byte[]> readEntries(InputStream is) {
+		LinkedHashMap<String, byte[]> entries = new LinkedHashMap<String, byte[]>();
 		try {
-			extracted = Files
-					.createTempDirectory(
-							"DGAPI-GAME-" + Core.getTitle().toUpperCase() + "-" + Long.toString(System.nanoTime()))
-					.toFile();
 			ZipInputStream zis = new ZipInputStream(is);
 			ZipEntry ze = null;
+			byte[] buffer = new byte[16384];
 			while ((ze = zis.getNextEntry()) != null) {
-				File extractTo = new File(extracted.getAbsolutePath() + File.separator + ze.getName());
-				extractTo.getParentFile().mkdirs();
-				extractTo.createNewFile();
-				byte[] buffer = new byte[1024];
+				if (ze.isDirectory()) {
+					continue;
+				}
+				int size = ze.getSize() > 0 && ze.getSize() < Integer.MAX_VALUE ? (int) ze.getSize() : 16384;
+				ByteArrayOutputStream out = new ByteArrayOutputStream(size);
 				int len = 0;
-				FileOutputStream fos = new FileOutputStream(extractTo);
-				while ((len = zis.read(buffer, 0, 1024)) > 0) {
-					fos.write(buffer, 0, len);
+				while ((len = zis.read(buffer, 0, buffer.length)) > 0) {
+					out.write(buffer, 0, len);
 				}
-				fos.close();
+				entries.put(ze.getName().replace('\\', '/'), out.toByteArray());
 				zis.closeEntry();
 			}
 			zis.close();
@@ -88,70 +342,83 @@ public class MapLoader {
 			e.printStackTrace();
 			throw new MapException("The files could not be extracted.");
 		}
+		return entries;
 	}
 
 	/**
-	 * Deletes the directory.
+	 * Gets the lines of a text file in the map.
 	 *
-	 * @param f
-	 *            The directory
+	 * @param name
+	 *            The file name.
+	 * @return The lines, or null if the file is missing.
 	 */
-	private static void deleteDirectory(File f) {
-		if (!f.isDirectory()) {
-			f.delete();
-		} else {
-			for (File f2 : f.listFiles()) {
-				deleteDirectory(f2);
-			}
-			f.delete();
+	private String[] lines(String name) {
+		return lines(entries, name);
+	}
+
+	/**
+	 * Gets the lines of a text file in a map.
+	 *
+	 * @param entries
+	 *            The files in the map.
+	 * @param name
+	 *            The file name.
+	 * @return The lines, or null if the file is missing.
+	 */
+	static String[] lines(LinkedHashMap<String, byte[]> entries, String name) {
+		byte[] content = entries.get(name);
+		if (content == null) {
+			return null;
 		}
+		return new String(content, StandardCharsets.UTF_8).split("\r?\n");
 	}
 
 	/**
-	 * Checks the version
+	 * Reads the amount written on the first line of a file.
 	 *
-	 * @return If it's correct.
+	 * @param lines
+	 *            The lines of the file.
+	 * @param name
+	 *            The file name, for the error message.
+	 * @return The amount.
 	 */
-	private static boolean checkVersion() {
+	static int count(String[] lines, String name) {
 		try {
-			if (!MainUtilities.isFileInDirectory(extracted, "version.txt")) {
-				throw new MapException("The map you have provided is corrupt.");
-			}
-			Scanner s = new Scanner(new File(extracted.getAbsolutePath() + File.separator + "version.txt"));
-			if (s.hasNext()) {
-				int ver = s.nextInt();
-				s.close();
-				return ver == VERSION;
-			} else {
-				s.close();
-				return false;
-			}
-		} catch (IOException ex) {
-			ex.printStackTrace();
-			throw new MapException("The map version could not be checked.");
+			return Integer.parseInt(lines[0].trim());
+		} catch (NumberFormatException e) {
+			e.printStackTrace();
+			throw new MapException("The map you have provided is corrupt: " + name);
 		}
 	}
 
 	/**
-	 * Loads the music from the map.
+	 * Checks the version
+	 *
+	 * @return The version, or -1 if there isn't one.
+	 */
+	private int checkVersion() {
+		String[] lines = lines("version.txt");
+		if (lines == null) {
+			throw new MapException("The map you have provided is corrupt.");
+		}
+		String ver = lines[0].trim();
+		return ver.isEmpty() ? -1 : count(lines, "version.txt");
+	}
+
+	/**
+	 * Loads the music from the map. The sound system plays files, so this is the
+	 * one entry written to disk.
 	 */
-	private static void loadMusic() {
-		if (MainUtilities.isFileInDirectory(extracted, "music.au")) {
-			File f;
+	private void loadMusic() {
+		byte[] music = entries.get("music.au");
+		if (music != null) {
 			try {
-				f = File.createTempFile(
+				File f = File.createTempFile(
 						"DGAPI-GAME-" + Core.getTitle().toUpperCase() + "-" + Long.toString(System.nanoTime()), ".au");
 				f.deleteOnExit();
-				byte[] buffer = new byte[1024];
-				int len = 0;
-				FileInputStream fis = new FileInputStream(
-						new File(extracted.getAbsolutePath() + File.separator + "music.au"));
 				FileOutputStream fos = new FileOutputStream(f);
-				while ((len = fis.read(buffer, 0, 1024)) > 0) {
-					fos.write(buffer, 0, len);
-				}
+				fos.write(music);
 				fos.close();
-				fis.close();
 				map.setBackgroundMusic(f);
 			} catch (IOException e) {
 				e.printStackTrace();
@@ -161,59 +428,42 @@ public class MapLoader {
 	}
 
 	/**
-	 * Loads the background image.
+	 * Starts decoding the background image.
 	 */
-	private static void loadBackground() {
-		if (MainUtilities.isFileInDirectory(extracted, "background.png")) {
-			try {
-				BufferedImage img = ImageIO
-						.read(new File(extracted.getAbsolutePath() + File.separator + "background.png"));
-				map.setBackground(img);
-			} catch (IOException e) {
-				e.printStackTrace();
-				throw new MapException("The background image could not be loaded.");
-			}
+	private void loadBackground() {
+		if (entries.containsKey("background.png")) {
+			background = decode("background.png");
 		}
 	}
 
-	private static HashMap<String, BufferedImage> tilesheets = new HashMap<String, BufferedImage>();
-
 	/**
-	 * Loads the tilesheet's images.
+	 * Starts decoding the tilesheet's images.
 	 */
-	private static void loadTilesheetImages() {
-		if (MainUtilities.isFileInDirectory(extracted, "tilesheets")) {
-			for (File f : new File(extracted.getAbsolutePath() + File.separator + "tilesheets").listFiles()) {
-				try {
-					String id = f.getName().split("\\Q.\\E")[0];
-					BufferedImage img = ImageIO.read(f);
-					tilesheets.put(id, img);
-				} catch (IOException ex) {
-					ex.printStackTrace();
-					throw new MapException("Could not load tilesheets.");
-				}
+	private void loadTilesheetImages() {
+		for (java.util.Map.Entry<String, byte[]> entry : entries.entrySet()) {
+			String name = entry.getKey();
+			if (!name.startsWith("tilesheets/") || name.indexOf('/', "tilesheets/".length()) != -1) {
+				continue;
 			}
+			String id = name.substring("tilesheets/".length()).split("\\Q.\\E")[0];
+			tilesheets.put(id, decode(name));
 		}
 	}
 
 	/**
 	 * Loads the scripts.
+	 *
+	 * @param defer
+	 *            If the scripts are run when the map is shown instead of now.
 	 */
-	private static void loadScripts() {
-		if (MainUtilities.isFileInDirectory(extracted, "scripts")) {
-			for (File f : new File(extracted.getAbsolutePath() + File.separator + "scripts").listFiles()) {
-				try {
-					String content = "";
-					Scanner s = new Scanner(f);
-					while (s.hasNextLine()) {
-						content += s.nextLine();
-						content += "\n";
-					}
-					map.putScript(content);
-					s.close();
-				} catch (IOException ex) {
-					ex.printStackTrace();
-					throw new MapException("Could not load scripts.");
+	private void loadScripts(boolean defer) {
+		for (java.util.Map.Entry<String, byte[]> entry : entries.entrySet()) {
+			if (entry.getKey().startsWith("scripts/")) {
+				String script = new String(entry.getValue(), StandardCharsets.UTF_8);
+				if (defer) {
+					map.deferScript(script);
+				} else {
+					map.putScript(script);
 				}
 			}
 		}
@@ -222,108 +472,224 @@ public class MapLoader {
 	/**
 	 * Loads tilesheet information.
 	 */
-	private static void loadTilesheetMeta() {
-		if (MainUtilities.isFileInDirectory(extracted, "tilesheets.info")) {
-			try {
-				Scanner s = new Scanner(new File(extracted.getAbsolutePath() + File.separator + "tilesheets.info"));
-				int amt = s.nextInt();
-				s.nextLine();
-				for (int i = 0; i < amt; i++) {
-					String desc = s.nextLine();
-					String id = desc.split(":")[0];
-					int width = Integer.parseInt(desc.split(":")[1]);
-					int height = Integer.parseInt(desc.split(":")[2]);
-					Tilesheet t = new Tilesheet();
-					t.setId(id);
-					t.setTileWidth(width);
-					t.setTileHeight(height);
-					t.setParentMap(map);
-					if (!tilesheets.containsKey(id)) {
-						s.close();
-						throw new MapException("Missing tilesheet: " + id);
-					} else {
-						t.setImg(tilesheets.get(id));
-						map.addTilesheet(t);
-					}
-				}
-				s.close();
-			} catch (FileNotFoundException e) {
-				e.printStackTrace();
-				throw new MapException("The tilesheet data could not be loaded.");
-			}
+	private void loadTilesheetMeta() {
+		String[] lines = lines("tilesheets.info");
+		if (lines == null) {
+			return;
+		}
+		int amt = count(lines, "tilesheets.info");
+		if (lines.length <= amt) {
+			throw new MapException("The tilesheet data could not be loaded.");
 		}
+		for (int i = 1; i <= amt; i++) {
+			String[] parts = lines[i].split(":");
+			addTilesheet(parts[0], Integer.parseInt(parts[1]), Integer.parseInt(parts[2]));
+		}
+	}
+
+	/**
+	 * Adds a tilesheet to the map.
+	 *
+	 * @param id
+	 *            The id.
+	 * @param width
+	 *            The width of a tile.
+	 * @param height
+	 *            The height of a tile.
+	 * @return The tilesheet.
+	 */
+	private Tilesheet addTilesheet(String id, int width, int height) {
+		Tilesheet t = new Tilesheet();
+		t.setId(id);
+		t.setTileWidth(width);
+		t.setTileHeight(height);
+		t.setParentMap(map);
+		if (!tilesheets.containsKey(id)) {
+			throw new MapException("Missing tilesheet: " + id);
+		}
+		map.addTilesheet(t); // The image is set once it is decoded.
+		return t;
 	}
 
 	/**
 	 * Loads the tiles information.
 	 */
-	private static void loadTilesMeta() {
-		if (MainUtilities.isFileInDirectory(extracted, "tiles.info")) {
-			try {
-				Scanner s = new Scanner(new File(extracted.getAbsolutePath() + File.separator + "tiles.info"));
-				int amtTiles = s.nextInt();
-				s.nextLine();
-				for (int i = 0; i < amtTiles; i++) {
-					String desc = s.nextLine();
-					String[] parts = desc.split(":");
-					String tilesheetID = parts[0];
-					int xPos = Integer.parseInt(parts[1]);
-					int yPos = Integer.parseInt(parts[2]);
-					boolean visible = Boolean.parseBoolean(parts[3]);
-					boolean solid = Boolean.parseBoolean(parts[4]);
-					int sheetX = Integer.parseInt(parts[5]);
-					int sheetY = Integer.parseInt(parts[6]);
-					Tile t = new Tile();
-					t.setTilesheetId(tilesheetID);
-					t.setParentTilesheet(map.getTilesheetByName(tilesheetID));
-					t.setxPos(xPos);
-					t.setyPos(yPos);
-					t.setVisible(visible);
-					t.setSolid(solid);
-					t.setSheetPosX(sheetX);
-					t.setSheetPosY(sheetY);
-					t.updateImage();
-					map.addTile(t);
-				}
-				s.close();
-			} catch (FileNotFoundException e) {
-				e.printStackTrace();
-				throw new MapException("Unable to load tiles.");
-			}
+	private void loadTilesMeta() {
+		String[] lines = lines("tiles.info");
+		if (lines == null) {
+			return;
+		}
+		int amtTiles = count(lines, "tiles.info");
+		if (lines.length <= amtTiles) {
+			throw new MapException("Unable to load tiles.");
+		}
+		tileCount = amtTiles;
+		for (int i = 1; i <= amtTiles; i++) {
+			String[] parts = lines[i].split(":");
+			addTile(map.getTilesheetByName(parts[0]), Integer.parseInt(parts[1]), Integer.parseInt(parts[2]),
+					Boolean.parseBoolean(parts[3]), Boolean.parseBoolean(parts[4]), Integer.parseInt(parts[5]),
+					Integer.parseInt(parts[6]));
+		}
+	}
+
+	/**
+	 * Adds a tile to the map.
+	 *
+	 * @param sheet
+	 *            The tilesheet.
+	 * @param xPos
+	 *            The x position.
+	 * @param yPos
+	 *            The y position.
+	 * @param visible
+	 *            If it is visible.
+	 * @param solid
+	 *            If it is solid.
+	 * @param sheetX
+	 *            The x position on the tilesheet.
+	 * @param sheetY
+	 *            The y position on the tilesheet.
+	 */
+	private void addTile(Tilesheet sheet, int xPos, int yPos, boolean visible, boolean solid, int sheetX,
+			int sheetY) {
+		Tile t = new Tile();
+		t.setTilesheetId(sheet.getId());
+		t.setParentTilesheet(sheet);
+		t.setxPos(xPos);
+		t.setyPos(yPos);
+		t.setVisible(visible);
+		t.setSolid(solid);
+		t.setSheetPosX(sheetX);
+		t.setSheetPosY(sheetY);
+		map.addTile(t); // The image is cut once the tilesheet is decoded.
+		if (++tilesAdded % 1024 == 0) {
+			report(listener, LoadStage.PARSE, tilesAdded, tileCount);
 		}
 	}
 
 	/**
 	 * Loads the tile event information.
 	 */
-	private static void loadEventsMeta() {
-		if (MainUtilities.isFileInDirectory(extracted, "events.info")) {
-			try {
-				Scanner s = new Scanner(new File(extracted.getAbsolutePath() + File.separator + "events.info"));
-				int amt = s.nextInt();
-				s.nextLine();
-				for (int i = 0; i < amt; i++) {
-					String desc = s.nextLine();
-					String[] parts = desc.split(":");
-					TileEvent evt = new TileEvent();
-					evt.setEventType(TileEvent.TileEventType.valueOf(parts[0]));
-					int x = Integer.parseInt(parts[1]);
-					int y = Integer.parseInt(parts[2]);
-					String tilesheet = parts[3];
-					map.setInUseTilesheet(tilesheet);
-					Tile t = map.getTileAtPosition(x, y);
-					evt.setAffectedTile(t);
-					String entityType = parts[4];
-					evt.setEntityType(entityType);
-					String method = parts[5];
-					evt.setMethod(method);
-					map.addTileEvent(evt);
-				}
-				s.close();
-			} catch (IOException ex) {
-				ex.printStackTrace();
-				throw new MapException("Could not load events.");
+	private void loadEventsMeta() {
+		String[] lines = lines("events.info");
+		if (lines == null) {
+			return;
+		}
+		int amt = count(lines, "events.info");
+		if (lines.length <= amt) {
+			throw new MapException("Could not load events.");
+		}
+		for (int i = 1; i <= amt; i++) {
+			String[] parts = lines[i].split(":");
+			addEvent(TileEvent.TileEventType.valueOf(parts[0]), parts[3], Integer.parseInt(parts[1]),
+					Integer.parseInt(parts[2]), parts[4], parts[5]);
+		}
+	}
+
+	/**
+	 * Adds a tile event to the map.
+	 *
+	 * @param type
+	 *            The type.
+	 * @param tilesheet
+	 *            The tilesheet of the tile.
+	 * @param x
+	 *            The x position of the tile.
+	 * @param y
+	 *            The y position of the tile.
+	 * @param entityType
+	 *            The entity type.
+	 * @param method
+	 *            The script method.
+	 */
+	private void addEvent(TileEvent.TileEventType type, String tilesheet, int x, int y, String entityType,
+			String method) {
+		TileEvent evt = new TileEvent();
+		evt.setEventType(type);
+		map.setInUseTilesheet(tilesheet);
+		evt.setAffectedTile(map.getTileAtPosition(x, y));
+		evt.setEntityType(entityType);
+		evt.setMethod(method);
+		map.addTileEvent(evt);
+	}
+
+	/**
+	 * Loads the tilesheets, tiles and events of a version 3 map.
+	 */
+	private void loadBinary() {
+		byte[] data = entries.get(BINARY_DATA);
+		if (data == null) {
+			throw new MapException("The map you have provided is corrupt.");
+		}
+		ByteBuffer buf = ByteBuffer.wrap(data);
+		try {
+			if (buf.getInt() != MAGIC) {
+				throw new MapException("The map you have provided is corrupt.");
 			}
+			Tilesheet[] sheets = new Tilesheet[readCount(buf)];
+			for (int i = 0; i < sheets.length; i++) {
+				String id = readString(buf);
+				int width = buf.getInt();
+				int height = buf.getInt();
+				sheets[i] = addTilesheet(id, width, height);
+			}
+			int amtTiles = readCount(buf);
+			tileCount = amtTiles;
+			for (int i = 0; i < amtTiles; i++) {
+				Tilesheet sheet = sheets[buf.getShort() & 0xFFFF];
+				int xPos = buf.getInt();
+				int yPos = buf.getInt();
+				int sheetX = buf.getShort();
+				int sheetY = buf.getShort();
+				byte flags = buf.get();
+				addTile(sheet, xPos, yPos, (flags & VISIBLE) != 0, (flags & SOLID) != 0, sheetX, sheetY);
+			}
+			TileEvent.TileEventType[] types = TileEvent.TileEventType.values();
+			int amtEvents = readCount(buf);
+			for (int i = 0; i < amtEvents; i++) {
+				TileEvent.TileEventType type = types[buf.get()];
+				Tilesheet sheet = sheets[buf.getShort() & 0xFFFF];
+				int x = buf.getInt();
+				int y = buf.getInt();
+				String entityType = readString(buf);
+				String method = readString(buf);
+				addEvent(type, sheet.getId(), x, y, entityType, method);
+			}
+		} catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+			e.printStackTrace();
+			throw new MapException("The map you have provided is corrupt.");
+		}
+	}
+
+	/**
+	 * Reads how many records follow. Every record takes at least one byte, so a
+	 * count that is negative or more than the bytes left means the map is
+	 * corrupt.
+	 *
+	 * @param buf
+	 *            The data.
+	 * @return The count.
+	 */
+	private static int readCount(ByteBuffer buf) {
+		int count = buf.getInt();
+		if (count < 0 || count > buf.remaining()) {
+			throw new MapException("The map you have provided is corrupt.");
 		}
+		return count;
+	}
+
+	/**
+	 * Reads a string from binary map data. The string is stored as its length
+	 * as a short and then its UTF-8 bytes.
+	 *
+	 * @param buf
+	 *            The data.
+	 * @return The string.
+	 */
+	static String readString(ByteBuffer buf) {
+		int length = buf.getShort() & 0xFFFF;
+		String s = new String(buf.array(), buf.arrayOffset() + buf.position(), length, StandardCharsets.UTF_8);
+		buf.position(buf.position() + length);
+		return s;
 	}
 }
@@ -1,21 +1,29 @@
 package dillon.gameAPI.mapping;
 
-import java.awt.Rectangle;
 import java.io.BufferedInputStream;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import javax.imageio.ImageIO;
 
 import dillon.gameAPI.core.Core;
+import dillon.gameAPI.core.WorldSnapshot;
 import dillon.gameAPI.entity.Entity;
 import dillon.gameAPI.errors.GeneralRuntimeException;
 import dillon.gameAPI.event.EEHandler;
 import dillon.gameAPI.event.EventSystem;
 import dillon.gameAPI.event.MouseEngineEvent;
 import dillon.gameAPI.event.RenderEvent;
+import dillon.gameAPI.event.UpdateEvent;
 import dillon.gameAPI.gui.BlackoutImage;
 import dillon.gameAPI.gui.GuiSystem;
 import dillon.gameAPI.security.SecurityKey;
@@ -30,8 +38,21 @@ import dillon.gameAPI.sound.SoundSystem;
  *
  */
 public class MapManager {
-	public static final int VERSION = 2;
-	private static Map currentMap = null;
+	public static final int VERSION = 3;
+	private static volatile Map currentMap = null;
+	private static final Object swapLock = new Object(); // Guards the map waiting to be swapped in.
+	private static Map pendingMap = null; // The map to show on the next update.
+	private static CompletableFuture<Map> pendingSwap = null; // Completed once the map is shown.
+	private static final Map[] drawn = new Map[2]; // The map each snapshot buffer was
+	// captured with, when the update and render threads are split.
+	private static final ExecutorService loader = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, "Map Loader");
+			t.setDaemon(true);
+			return t;
+		}
+	}); // Loads maps in the background.
 
 	private static PlayableSound backgroundMusic;
 
@@ -59,6 +80,108 @@ public class MapManager {
 		return m;
 	}
 
+	/**
+	 * Loads the map on a background thread and shows it on the next update after
+	 * it is loaded. The game keeps running while the map loads.
+	 *
+	 * @param is
+	 *            The input stream.
+	 * @param listener
+	 *            Told how far along the load is, or null.
+	 * @return Completes with the map once it is shown.
+	 * @since V2.2.2
+	 */
+	public static CompletableFuture<Map> loadMapAsync(InputStream is, MapLoader.loadListener listener) {
+		return preload(is, listener).thenCompose(new Function<Map, CompletableFuture<Map>>() {
+			@Override
+			public CompletableFuture<Map> apply(Map m) {
+				return swapMap(m);
+			}
+		});
+	}
+
+	/**
+	 * Loads a map on a background thread without showing it, so that it can be
+	 * swapped in later with swapMap. The map's scripts are compiled while it
+	 * loads, but are only run when it is shown.
+	 *
+	 * @param is
+	 *            The input stream.
+	 * @param listener
+	 *            Told how far along the load is, or null.
+	 * @return Completes with the map once it is loaded.
+	 * @since V2.2.2
+	 */
+	public static CompletableFuture<Map> preload(final InputStream is, final MapLoader.loadListener listener) {
+		if (is == null) {
+			throw new IllegalArgumentException("The input stream must not be null.");
+		}
+		return CompletableFuture.supplyAsync(new Supplier<Map>() {
+			@Override
+			public Map get() {
+				return MapLoader.load(is, listener, true);
+			}
+		}, loader);
+	}
+
+	/**
+	 * Shows the map at the start of the next update, on the thread that runs the
+	 * update, so that the whole update runs with either the old map or the new
+	 * one, and the frames drawn from it show the same map. While the game is
+	 * paused there is no update, so the swap waits until it is resumed. If
+	 * another map is swapped in before then, this swap is cancelled.
+	 *
+	 * @param m
+	 *            The map
+	 * @return Completes with the map once it is shown.
+	 * @since V2.2.2
+	 */
+	public static CompletableFuture<Map> swapMap(Map m) {
+		if (m == null) {
+			throw new IllegalArgumentException("The map must not be null.");
+		}
+		CompletableFuture<Map> swap = new CompletableFuture<Map>();
+		if (!initialized || !Core.isRunning()) {
+			// Nothing is running, so there is no update to wait for.
+			loadMap(m);
+			swap.complete(m);
+			return swap;
+		}
+		CompletableFuture<Map> replaced;
+		synchronized (swapLock) {
+			replaced = pendingSwap;
+			pendingMap = m;
+			pendingSwap = swap;
+		}
+		if (replaced != null) {
+			replaced.cancel(false);
+		}
+		return swap;
+	}
+
+	/**
+	 * Shows the map waiting to be swapped in, if there is one.
+	 */
+	private static void finishSwap() {
+		Map m;
+		CompletableFuture<Map> swap;
+		synchronized (swapLock) {
+			if (pendingSwap == null) {
+				return;
+			}
+			m = pendingMap;
+			swap = pendingSwap;
+			pendingMap = null;
+			pendingSwap = null;
+		}
+		try {
+			loadMap(m);
+			swap.complete(m);
+		} catch (RuntimeException e) {
+			swap.completeExceptionally(e);
+		}
+	}
+
 	/**
 	 * Sets the current map.
 	 *
@@ -66,6 +189,7 @@ public class MapManager {
 	 *            The map
 	 */
 	public static void loadMap(Map m) {
+		m.runDeferredScripts(); // A preloaded map's scripts run on this thread.
 		currentMap = m;
 		if (m.getBackgroundImage() != null) {
 			Core.setBackgroundImage(m.getBackgroundImage(), key);
@@ -111,12 +235,29 @@ public class MapManager {
 		}
 		key = engineKey;
 		initialized = true;
+		EventSystem.addHandler(new EEHandler<UpdateEvent>() {
+			@Override
+			public void handle(UpdateEvent evt) {
+				finishSwap();
+				int buffer = WorldSnapshot.getCaptureBuffer();
+				if (buffer != -1) {
+					drawn[buffer] = currentMap;
+				}
+			}
+
+			@Override
+			public int getPriority() {
+				return Integer.MIN_VALUE; // Before anything uses the map this update.
+			}
+		}, engineKey);
 		EventSystem.addHandlerDirectly(new EEHandler<RenderEvent>() {
 			@Override
 			public void handle(RenderEvent evt) {
+				int buffer = WorldSnapshot.getDrawBuffer();
+				Map currentMap = buffer != -1 ? drawn[buffer] : MapManager.currentMap;
 				if (currentMap != null) {
-					evt.getGraphics().drawImage(currentMap.getRender(), 0 - Camera.getXPos(), 0 - Camera.getYPos(),
-							null);
+					currentMap.draw(evt.getGraphics(), WorldSnapshot.getCameraX(), WorldSnapshot.getCameraY(),
+							Core.getWidth(), Core.getHeight());
 				}
 			}
 
@@ -181,23 +322,57 @@ public class MapManager {
 		if (e == null) {
 			throw new IllegalArgumentException("Entity must not be null.");
 		}
-		int x = (int) e.getX(), y = (int) e.getY();
-		int width = e.getWidth(), height = e.getHeight();
-		Rectangle r1 = new Rectangle(x, y, width, height);
-		for (Tile t : currentMap.getTiles()) {
-			if (!t.isSolid()) {
+		Tile t = getSolidTile((int) e.getX(), (int) e.getY(), e.getWidth(), e.getHeight());
+		if (t != null) {
+			fireTouch(t, e);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Finds a solid tile that overlaps the area. Only the tiles in the cells that
+	 * the area covers are checked.
+	 *
+	 * @param x
+	 *            The x position.
+	 * @param y
+	 *            The y position.
+	 * @param width
+	 *            The width.
+	 * @param height
+	 *            The height.
+	 * @return The tile, or null if there isn't one.
+	 */
+	private static Tile getSolidTile(int x, int y, int width, int height) {
+		if (width <= 0 || height <= 0) {
+			return null;
+		}
+		ArrayList<Tilesheet> tilesheets = currentMap.getTilesheets();
+		for (int i = 0; i < tilesheets.size(); i++) {
+			Tilesheet tilesheet = tilesheets.get(i);
+			TileGrid grid = tilesheet.getGrid();
+			int tileWidth = tilesheet.getTileWidth();
+			int tileHeight = tilesheet.getTileHeight();
+			if (grid.size() == 0 || tileWidth <= 0 || tileHeight <= 0) {
 				continue;
 			}
-			Tilesheet tilesheet = currentMap.getTilesheetByName(t.getTilesheetId());
-			int locationX = tilesheet.getTileWidth() * t.getxPos();
-			int locationY = tilesheet.getTileHeight() * t.getyPos();
-			Rectangle r2 = new Rectangle(locationX, locationY, tilesheet.getTileWidth(), tilesheet.getTileHeight());
-			if (r1.intersects(r2)) {
-				fireTouch(t, e);
-				return true;
+			int left = Math.floorDiv(x, tileWidth);
+			int right = Math.floorDiv(x + width - 1, tileWidth);
+			int top = Math.floorDiv(y, tileHeight);
+			int bottom = Math.floorDiv(y + height - 1, tileHeight);
+			for (int tileY = top; tileY <= bottom; tileY++) {
+				for (int tileX = left; tileX <= right; tileX++) {
+					for (int depth = 0, n = grid.getDepth(tileX, tileY); depth < n; depth++) {
+						Tile t = grid.get(tileX, tileY, depth);
+						if (t.isSolid()) {
+							return t;
+						}
+					}
+				}
 			}
 		}
-		return false;
+		return null;
 	}
 
 	/**
@@ -240,20 +415,10 @@ public class MapManager {
 			throw new IllegalArgumentException("Entity must not be null.");
 		}
 		int x = (int) e.getX() + (int) relX, y = (int) e.getY() + (int) relY;
-		int width = e.getWidth(), height = e.getHeight();
-		Rectangle r1 = new Rectangle(x, y, width, height);
-		for (Tile t : currentMap.getTiles()) {
-			if (!t.isSolid()) {
-				continue;
-			}
-			Tilesheet tilesheet = currentMap.getTilesheetByName(t.getTilesheetId());
-			int locationX = tilesheet.getTileWidth() * t.getxPos();
-			int locationY = tilesheet.getTileHeight() * t.getyPos();
-			Rectangle r2 = new Rectangle(locationX, locationY, tilesheet.getTileWidth(), tilesheet.getTileHeight());
-			if (r2.intersects(r1)) {
-				fireTouch(t, e);
-				return true;
-			}
+		Tile t = getSolidTile(x, y, e.getWidth(), e.getHeight());
+		if (t != null) {
+			fireTouch(t, e);
+			return true;
 		}
 		return false;
 	}
@@ -23,7 +23,9 @@ public class Tile {
 	}
 
 	public void setxPos(int xPos) {
+		int oldX = this.xPos;
 		this.xPos = xPos;
+		moved(parentTilesheet, oldX, yPos);
 	}
 
 	public int getyPos() {
@@ -31,7 +33,9 @@ public class Tile {
 	}
 
 	public void setyPos(int yPos) {
+		int oldY = this.yPos;
 		this.yPos = yPos;
+		moved(parentTilesheet, xPos, oldY);
 	}
 
 	public String getTilesheetId() {
@@ -166,7 +170,35 @@ public class Tile {
 	}
 
 	public void setParentTilesheet(Tilesheet parentTilesheet) {
+		Tilesheet old = this.parentTilesheet;
 		this.parentTilesheet = parentTilesheet;
+		moved(old, xPos, yPos);
+	}
+
+	/**
+	 * Gets the tilesheet the tile is from.
+	 *
+	 * @return The tilesheet.
+	 */
+	Tilesheet getParentTilesheet() {
+		return parentTilesheet;
+	}
+
+	/**
+	 * Keeps the tilesheet's index up to date when a tile that is on the map
+	 * moves.
+	 *
+	 * @param oldSheet
+	 *            The tilesheet it was indexed in.
+	 * @param oldX
+	 *            The x position it was indexed at.
+	 * @param oldY
+	 *            The y position it was indexed at.
+	 */
+	private void moved(Tilesheet oldSheet, int oldX, int oldY) {
+		if (oldSheet != null && oldSheet.getGrid().remove(this, oldX, oldY) && parentTilesheet != null) {
+			parentTilesheet.getGrid().put(this);
+		}
 	}
 
 	@Override
@@ -0,0 +1,241 @@
+package dillon.gameAPI.mapping;
+
+import java.util.Arrays;
+
+/**
+ * An index of the tiles of one tilesheet by their position, so a tile can be
+ * found without going through every tile in the map. The grid grows to fit
+ * whatever positions are put in it. A cell can hold several tiles, which are
+ * kept in the order they were put in, bottom first.
+ *
+ * @author Dillon - Github dg092099
+ * @since V2.2.2
+ */
+class TileGrid {
+	private Tile[] cells = new Tile[0]; // The top tile in each cell, row by row.
+	private Tile[][] stacks; // Every tile in the cells holding more than one,
+	// bottom first. Null until tiles are stacked.
+	private int originX = 0, originY = 0; // The position of the first cell.
+	private int width = 0, height = 0; // The size in tiles.
+	private int count = 0; // The amount of tiles in the grid.
+
+	/**
+	 * Gets the tile at the position.
+	 *
+	 * @param x
+	 *            The x position.
+	 * @param y
+	 *            The y position.
+	 * @return The tile, or the one on top if there are several, or null if
+	 *         there isn't one.
+	 */
+	Tile get(int x, int y) {
+		int index = indexOf(x, y);
+		return index == -1 ? null : cells[index];
+	}
+
+	/**
+	 * Gets one of the tiles at the position.
+	 *
+	 * @param x
+	 *            The x position.
+	 * @param y
+	 *            The y position.
+	 * @param depth
+	 *            Which tile, from 0 for the bottom one to one less than
+	 *            getDepth.
+	 * @return The tile.
+	 */
+	Tile get(int x, int y, int depth) {
+		int index = indexOf(x, y);
+		if (stacks != null && stacks[index] != null) {
+			return stacks[index][depth];
+		}
+		return cells[index];
+	}
+
+	/**
+	 * Gets the amount of tiles at the position.
+	 *
+	 * @param x
+	 *            The x position.
+	 * @param y
+	 *            The y position.
+	 * @return The amount.
+	 */
+	int getDepth(int x, int y) {
+		int index = indexOf(x, y);
+		if (index == -1 || cells[index] == null) {
+			return 0;
+		}
+		if (stacks != null && stacks[index] != null) {
+			return stacks[index].length;
+		}
+		return 1;
+	}
+
+	/**
+	 * Puts the tile in the grid at its position, on top of any tiles that are
+	 * already there.
+	 *
+	 * @param t
+	 *            The tile.
+	 */
+	void put(Tile t) {
+		int x = t.getxPos();
+		int y = t.getyPos();
+		fit(x, y);
+		int index = (y - originY) * width + (x - originX);
+		Tile top = cells[index];
+		if (top == t) {
+			return;
+		}
+		if (top != null) {
+			if (stacks == null) {
+				stacks = new Tile[cells.length][];
+			}
+			Tile[] stack = stacks[index];
+			if (stack == null) {
+				stack = new Tile[] { top };
+			} else {
+				for (Tile other : stack) {
+					if (other == t) {
+						return;
+					}
+				}
+			}
+			stack = Arrays.copyOf(stack, stack.length + 1);
+			stack[stack.length - 1] = t;
+			stacks[index] = stack;
+		}
+		cells[index] = t;
+		count++;
+	}
+
+	/**
+	 * Removes the tile from the grid if it is at the position.
+	 *
+	 * @param t
+	 *            The tile.
+	 * @param x
+	 *            The x position it was put at.
+	 * @param y
+	 *            The y position it was put at.
+	 * @return If it was removed.
+	 */
+	boolean remove(Tile t, int x, int y) {
+		int index = indexOf(x, y);
+		if (index == -1) {
+			return false;
+		}
+		Tile[] stack = stacks != null ? stacks[index] : null;
+		if (stack == null) {
+			if (cells[index] != t) {
+				return false;
+			}
+			cells[index] = null;
+			count--;
+			return true;
+		}
+		for (int i = 0; i < stack.length; i++) {
+			if (stack[i] == t) {
+				Tile[] left = new Tile[stack.length - 1];
+				System.arraycopy(stack, 0, left, 0, i);
+				System.arraycopy(stack, i + 1, left, i, left.length - i);
+				stacks[index] = left.length > 1 ? left : null;
+				cells[index] = left[left.length - 1];
+				count--;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Removes every tile.
+	 */
+	void clear() {
+		cells = new Tile[0];
+		stacks = null;
+		originX = 0;
+		originY = 0;
+		width = 0;
+		height = 0;
+		count = 0;
+	}
+
+	/**
+	 * Gets the amount of tiles in the grid.
+	 *
+	 * @return The amount.
+	 */
+	int size() {
+		return count;
+	}
+
+	/**
+	 * Finds the cell for the position.
+	 *
+	 * @param x
+	 *            The x position.
+	 * @param y
+	 *            The y position.
+	 * @return The index of the cell, or -1 if it is outside of the grid.
+	 */
+	private int indexOf(int x, int y) {
+		int cx = x - originX;
+		int cy = y - originY;
+		if (cx < 0 || cy < 0 || cx >= width || cy >= height) {
+			return -1;
+		}
+		return cy * width + cx;
+	}
+
+	/**
+	 * Grows the grid so the position fits in it.
+	 *
+	 * @param x
+	 *            The x position.
+	 * @param y
+	 *            The y position.
+	 */
+	private void fit(int x, int y) {
+		if (width > 0 && x >= originX && y >= originY && x < originX + width && y < originY + height) {
+			return;
+		}
+		int minX = originX, minY = originY;
+		int maxX = originX + width - 1, maxY = originY + height - 1;
+		if (width == 0) {
+			minX = maxX = x;
+			minY = maxY = y;
+		}
+		// Leave room to grow so that tiles added one by one don't copy each time.
+		if (x < minX) {
+			minX = x - width / 2;
+		} else if (x > maxX) {
+			maxX = x + width / 2;
+		}
+		if (y < minY) {
+			minY = y - height / 2;
+		} else if (y > maxY) {
+			maxY = y + height / 2;
+		}
+		int newWidth = maxX - minX + 1;
+		int newHeight = maxY - minY + 1;
+		Tile[] grown = new Tile[newWidth * newHeight];
+		Tile[][] grownStacks = stacks != null ? new Tile[grown.length][] : null;
+		for (int row = 0; row < height; row++) {
+			int to = (row + originY - minY) * newWidth + (originX - minX);
+			System.arraycopy(cells, row * width, grown, to, width);
+			if (stacks != null) {
+				System.arraycopy(stacks, row * width, grownStacks, to, width);
+			}
+		}
+		cells = grown;
+		stacks = grownStacks;
+		originX = minX;
+		originY = minY;
+		width = newWidth;
+		height = newHeight;
+	}
+}
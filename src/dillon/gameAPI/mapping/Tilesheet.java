@@ -16,6 +16,7 @@ public class Tilesheet {
 	private int tileHeight;
 	private BufferedImage img;
 	private Map parentMap;
+	private final TileGrid grid = new TileGrid(); // The map's tiles from this sheet by position.
 
 	public BufferedImage getImg() {
 		return img;
@@ -82,8 +83,20 @@ public class Tilesheet {
 			if (t.getTilesheetId().equals(this.getId())) {
 				int realPosX = t.getxPos() * getTileWidth();
 				int realPosY = t.getyPos() * getTileHeight();
-				if (t.isVisible()) {
-					g.drawImage(t.getTile(), realPosX, realPosY, null);
+				int depth = grid.getDepth(t.getxPos(), t.getyPos());
+				if (depth == 0) {
+					if (t.isVisible()) {
+						g.drawImage(t.getTile(), realPosX, realPosY, null);
+					}
+				} else if (grid.get(t.getxPos(), t.getyPos(), 0) == t) {
+					// The list isn't in the order the tiles were added, so draw the
+					// whole cell bottom first from the grid.
+					for (int i = 0; i < depth; i++) {
+						Tile stacked = grid.get(t.getxPos(), t.getyPos(), i);
+						if (stacked.isVisible()) {
+							g.drawImage(stacked.getTile(), realPosX, realPosY, null);
+						}
+					}
 				}
 			}
 		}
@@ -94,4 +107,13 @@ public class Tilesheet {
 	public void setParentMap(Map m) {
 		parentMap = m;
 	}
+
+	/**
+	 * Gets the index of the map's tiles that use this tilesheet.
+	 *
+	 * @return The grid.
+	 */
+	TileGrid getGrid() {
+		return grid;
+	}
 }
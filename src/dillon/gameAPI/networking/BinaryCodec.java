@@ -0,0 +1,149 @@
+package dillon.gameAPI.networking;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The compact message format. A message is written as:
+ * <ul>
+ * <li>A type tag byte, which is always TYPE_MESSAGE for now.</li>
+ * <li>A byte of flags, saying which fields aren't null.</li>
+ * <li>The message, then the originator, each as a varint length and its UTF-8
+ * bytes. Null fields are left out.</li>
+ * </ul>
+ *
+ * @author Dillon - Github dg092099
+ * @since V2.2.2
+ */
+class BinaryCodec implements MessageCodec {
+	static final int TYPE_MESSAGE = 1; // The tag for a plain message.
+	private static final int HAS_MESSAGE = 1, HAS_ORIGINATOR = 2; // Flags.
+
+	@Override
+	public void encode(Message msg, OutputStream out) throws IOException {
+		String message = msg.getMessage();
+		String originator = msg.getOriginator();
+		out.write(TYPE_MESSAGE);
+		out.write((message != null ? HAS_MESSAGE : 0) | (originator != null ? HAS_ORIGINATOR : 0));
+		if (message != null) {
+			writeString(out, message);
+		}
+		if (originator != null) {
+			writeString(out, originator);
+		}
+	}
+
+	@Override
+	public Message decode(ByteBuffer body) throws IOException {
+		int type = body.get() & 0xFF;
+		if (type != TYPE_MESSAGE) {
+			throw new IOException("Unknown message type: " + type);
+		}
+		int flags = body.get();
+		String message = (flags & HAS_MESSAGE) != 0 ? readString(body) : null;
+		String originator = (flags & HAS_ORIGINATOR) != 0 ? readString(body) : null;
+		return new Message(message, originator);
+	}
+
+	/**
+	 * Writes a string as a varint length and its UTF-8 bytes.
+	 *
+	 * @param out
+	 *            The output.
+	 * @param s
+	 *            The string.
+	 * @throws IOException
+	 *             If it couldn't be written.
+	 */
+	private static void writeString(OutputStream out, String s) throws IOException {
+		byte[] b = s.getBytes(StandardCharsets.UTF_8);
+		writeVarint(out, b.length);
+		out.write(b);
+	}
+
+	/**
+	 * Reads a string written by writeString.
+	 *
+	 * @param in
+	 *            The input.
+	 * @return The string.
+	 * @throws IOException
+	 *             If the length is broken.
+	 */
+	private static String readString(ByteBuffer in) throws IOException {
+		int length = readVarint(in);
+		if (length > in.remaining()) {
+			throw new IOException("The text is longer than the message.");
+		}
+		String s;
+		if (in.hasArray()) {
+			s = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+			in.position(in.position() + length);
+		} else {
+			byte[] b = new byte[length];
+			in.get(b);
+			s = new String(b, StandardCharsets.UTF_8);
+		}
+		return s;
+	}
+
+	/**
+	 * Writes a number 7 bits at a time, lowest first. The top bit of each byte
+	 * says if another follows, so small numbers take one byte.
+	 *
+	 * @param out
+	 *            The output.
+	 * @param value
+	 *            The number, which must not be negative.
+	 * @throws IOException
+	 *             If it couldn't be written.
+	 */
+	static void writeVarint(OutputStream out, int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			out.write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.write(value);
+	}
+
+	/**
+	 * Reads a number written by writeVarint.
+	 *
+	 * @param in
+	 *            The input.
+	 * @return The number.
+	 * @throws IOException
+	 *             If it is too long or negative.
+	 */
+	static int readVarint(ByteBuffer in) throws IOException {
+		int value = readVarintBits(in);
+		if (value < 0) {
+			throw new IOException("Bad varint.");
+		}
+		return value;
+	}
+
+	/**
+	 * Reads the 32 bits of a varint, which may be negative if they were written
+	 * that way on purpose.
+	 *
+	 * @param in
+	 *            The input.
+	 * @return The bits.
+	 * @throws IOException
+	 *             If it is too long.
+	 */
+	static int readVarintBits(ByteBuffer in) throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 35; shift += 7) {
+			int b = in.get();
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Bad varint.");
+	}
+}
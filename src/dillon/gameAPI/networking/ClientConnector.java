@@ -1,9 +1,13 @@
 package dillon.gameAPI.networking;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import dillon.gameAPI.event.EventSystem;
 import dillon.gameAPI.event.NetworkEvent;
@@ -17,10 +21,21 @@ import dillon.gameAPI.security.SecurityKey;
  *
  */
 public class ClientConnector {
+	static final int BATCH_BUFFER = 64 * 1024; // Write buffer size, so a batch is
+	// usually one write.
 	private Socket remote; // The client socket.
-	private ObjectInputStream ois; // The socket's input stream.
-	private ObjectOutputStream oos; // The socket's output stream.
-	private SecurityKey key;
+	private DataInputStream in; // The socket's input stream.
+	private DataOutputStream out; // The socket's output stream.
+	/**
+	 * The key that the connector's events are sent with.
+	 *
+	 * @since V2.2.2
+	 */
+	protected SecurityKey key;
+	final MessageCodec codec; // How messages are encoded, fixed when the client connects.
+	final SendQueue queue = new SendQueue(); // Messages waiting to be written.
+	private final AtomicBoolean disconnected = new AtomicBoolean(false); // If
+	// the disconnect event has been sent.
 
 	/**
 	 * Creates a client connector with the specified socket.
@@ -34,15 +49,29 @@ public class ClientConnector {
 	 */
 	public ClientConnector(Socket s, SecurityKey k) throws IOException {
 		cc = this;
+		key = k;
+		codec = NetworkServer.getCodec();
 		remote = s;
-		ois = new ObjectInputStream(remote.getInputStream());
-		oos = new ObjectOutputStream(remote.getOutputStream());
-		oos.flush();
+		remote.setTcpNoDelay(NetworkServer.getTcpNoDelay());
+		in = new DataInputStream(new BufferedInputStream(remote.getInputStream()));
+		out = new DataOutputStream(new BufferedOutputStream(remote.getOutputStream(), BATCH_BUFFER));
 		continueListen = true;
 		// Start listening
 		Thread t = new Thread(new listener());
 		t.start();
+	}
+
+	/**
+	 * Creates a client connector for another server engine, which handles the
+	 * connection itself.
+	 *
+	 * @param k
+	 *            The security key.
+	 */
+	ClientConnector(SecurityKey k) {
+		cc = this;
 		key = k;
+		codec = NetworkServer.getCodec();
 	}
 
 	/**
@@ -61,16 +90,16 @@ public class ClientConnector {
 		Message msg = new Message("SHUTDOWN", "Server");
 		continueListen = false;
 		try {
-			// Send shutdown signal to client.
-			oos.writeObject(msg);
-			oos.flush();
-			oos.close();
-			ois.close();
+			// Send shutdown signal to client, after anything waiting.
+			synchronized (this) {
+				write(queue.drain());
+				Frames.write(out, Frames.encode(msg, codec));
+				out.flush();
+			}
 			remote.close();
 		} catch (IOException e) {
 		}
-		EventSystem.broadcastMessage(new NetworkEvent(NetworkEvent.NetworkMode.DISCONNECT, this, null),
-				NetworkEvent.class, key);
+		disconnected();
 	}
 
 	/**
@@ -81,13 +110,162 @@ public class ClientConnector {
 	 */
 	public void send(Message msg) {
 		try {
-			oos.writeObject(msg);
-			oos.flush();
+			sendFrame(Frames.encode(msg, codec));
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
 	}
 
+	/**
+	 * Sends a message that has already been put in a frame. While batching, it
+	 * waits in the queue until the end of the tick.
+	 *
+	 * @param frame
+	 *            The frame, which mustn't be changed afterwards.
+	 */
+	synchronized void sendFrame(ByteBuffer frame) {
+		if (NetworkServer.isBatching()) {
+			if (queue.add(frame, NetworkServer.getMaxBatchBytes())) {
+				flush();
+			} else {
+				SendQueue.startTimer();
+			}
+			return;
+		}
+		try {
+			write(queue.drain());
+			Frames.write(out, frame);
+			out.flush();
+			queue.count(frame);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Writes every queued message now.
+	 *
+	 * @since V2.2.2
+	 */
+	public synchronized void flush() {
+		ByteBuffer[] batch = queue.drain();
+		if (batch.length == 0) {
+			return;
+		}
+		try {
+			write(batch);
+			out.flush();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Writes frames to the stream without flushing it.
+	 *
+	 * @param batch
+	 *            The frames.
+	 * @throws IOException
+	 *             If they couldn't be written.
+	 */
+	private void write(ByteBuffer[] batch) throws IOException {
+		for (ByteBuffer f : batch) {
+			Frames.write(out, f);
+		}
+	}
+
+	/**
+	 * Writes the queued messages if the oldest has waited too long.
+	 *
+	 * @param maxNanos
+	 *            How long it may wait.
+	 */
+	void flushIfOverdue(long maxNanos) {
+		if (queue.isOverdue(maxNanos)) {
+			flush();
+		}
+	}
+
+	/**
+	 * Gets how many messages are waiting to be written.
+	 *
+	 * @return The amount.
+	 * @since V2.2.2
+	 */
+	public int getQueuedMessages() {
+		return queue.getQueuedMessages();
+	}
+
+	/**
+	 * Gets how many bytes are waiting to be written.
+	 *
+	 * @return The bytes.
+	 * @since V2.2.2
+	 */
+	public int getQueuedBytes() {
+		return queue.getQueuedBytes();
+	}
+
+	/**
+	 * Gets how many messages have been written.
+	 *
+	 * @return The amount.
+	 * @since V2.2.2
+	 */
+	public long getMessagesSent() {
+		return queue.getMessagesSent();
+	}
+
+	/**
+	 * Gets how many writes the messages took. Each batch is one write.
+	 *
+	 * @return The amount.
+	 * @since V2.2.2
+	 */
+	public long getBatchesSent() {
+		return queue.getBatchesSent();
+	}
+
+	/**
+	 * Gets how many bytes have been written.
+	 *
+	 * @return The bytes.
+	 * @since V2.2.2
+	 */
+	public long getBytesSent() {
+		return queue.getBytesSent();
+	}
+
+	/**
+	 * Lets the server and game know that the client is gone. Only the first call
+	 * does anything.
+	 * @since V2.2.2
+	 */
+	protected void disconnected() {
+		if (disconnected.compareAndSet(false, true)) {
+			NetworkServer.removeConnector(this);
+			EventSystem.broadcastMessage(new NetworkEvent(NetworkEvent.NetworkMode.DISCONNECT, this, null),
+					NetworkEvent.class, key);
+		}
+	}
+
+	/**
+	 * Handles a message from the client.
+	 *
+	 * @param rec
+	 *            The message.
+	 * @since V2.2.2
+	 */
+	protected void received(Message rec) {
+		if ("SHUTDOWN".equals(rec.getMessage())) {
+			shutdown();
+			return;
+		}
+		rec.setIP(getIP());
+		EventSystem.broadcastMessage(new NetworkEvent(NetworkEvent.NetworkMode.MESSAGE, cc, rec), NetworkEvent.class,
+				key);
+	}
+
 	private volatile boolean continueListen = false; // Tells whether to
 														// continue listening.
 	private ClientConnector cc; // The instance.
@@ -104,22 +282,17 @@ public class ClientConnector {
 			while (continueListen) {
 				try {
 					// Get the message.
-					Message rec = (Message) ois.readObject();
-					if (rec == null) {
-						continue;
-					}
-					System.out.println("Got message.");
-					if (rec.getMessage().equals("SHUTDOWN")) {
-						shutdown();
-						return;
-					}
-					rec.setIP(remote.getRemoteSocketAddress().toString());
-					EventSystem.broadcastMessage(new NetworkEvent(NetworkEvent.NetworkMode.MESSAGE, cc, rec),
-							NetworkEvent.class, key);
-				} catch (ClassNotFoundException e) {
-					// TODO Auto-generated catch block
-					e.printStackTrace();
+					received(Frames.read(in, codec));
 				} catch (IOException e) {
+					// The client left or sent something broken.
+					if (continueListen) {
+						continueListen = false;
+						try {
+							remote.close();
+						} catch (IOException ex) {
+						}
+						disconnected();
+					}
 				}
 			}
 		}
@@ -131,6 +304,6 @@ public class ClientConnector {
 		input += String.format("%-13s %-5s\n", "---", "-----");
 		input += String.format("%-13s %-5s\n", "IP:", remote.getInetAddress().getHostAddress());
 		input += String.format("%-13s %-5d\n", "Remote Port:", remote.getPort());
-		return input;
+		return queue.getDebug(input);
 	}
 }
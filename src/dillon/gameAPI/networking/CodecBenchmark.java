@@ -0,0 +1,108 @@
+package dillon.gameAPI.networking;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Compares the message codecs with the object stream used before them. It
+ * prints the bytes each message takes and how many messages a second can be
+ * encoded and decoded. Run it with
+ * <code>java dillon.gameAPI.networking.CodecBenchmark [messages]</code>.
+ *
+ * @author Dillon - Github dg092099
+ * @since V2.2.2
+ */
+final class CodecBenchmark {
+	private static final int ROUNDS = 5; // Rounds run, the first warms up.
+
+	private CodecBenchmark() {
+	}
+
+	public static void main(String[] args) throws IOException, ClassNotFoundException {
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+		Message[] messages = new Message[count];
+		for (int i = 0; i < count; i++) {
+			messages[i] = new Message("MOVE:" + i + ":" + (i * 7 % 640) + ":" + (i * 13 % 480), "Player" + (i % 8));
+		}
+		System.out.println(String.format("%-12s %-10s %-14s %-14s", "Format", "Bytes/msg", "Encode msg/s",
+				"Decode msg/s"));
+		System.out.println(String.format("%-12s %-10s %-14s %-14s", "------", "---------", "------------",
+				"------------"));
+		stream(messages);
+		codec("Serialized", MessageCodec.SERIALIZED, messages);
+		codec("Binary", MessageCodec.BINARY, messages);
+	}
+
+	/**
+	 * Times one object stream carrying every message, the way connections used
+	 * to. The stream never resets, so later messages are smaller than the
+	 * first, but its handle table holds every message sent.
+	 *
+	 * @param messages
+	 *            The messages.
+	 */
+	private static void stream(Message[] messages) throws IOException, ClassNotFoundException {
+		long encode = Long.MAX_VALUE, decode = Long.MAX_VALUE;
+		byte[] bytes = null;
+		for (int r = 0; r < ROUNDS; r++) {
+			long start = System.nanoTime();
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			ObjectOutputStream oos = new ObjectOutputStream(out);
+			for (Message m : messages) {
+				oos.writeObject(m);
+			}
+			oos.close();
+			encode = Math.min(encode, System.nanoTime() - start);
+			bytes = out.toByteArray();
+			start = System.nanoTime();
+			ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes));
+			for (int i = 0; i < messages.length; i++) {
+				ois.readObject();
+			}
+			decode = Math.min(decode, System.nanoTime() - start);
+		}
+		print("Stream", bytes.length, messages.length, encode, decode);
+	}
+
+	/**
+	 * Times a codec, one frame per message.
+	 *
+	 * @param name
+	 *            The name to print.
+	 * @param codec
+	 *            The codec.
+	 * @param messages
+	 *            The messages.
+	 */
+	private static void codec(String name, MessageCodec codec, Message[] messages) throws IOException {
+		long encode = Long.MAX_VALUE, decode = Long.MAX_VALUE;
+		long total = 0;
+		ByteBuffer[] frames = new ByteBuffer[messages.length];
+		for (int r = 0; r < ROUNDS; r++) {
+			long start = System.nanoTime();
+			for (int i = 0; i < messages.length; i++) {
+				frames[i] = Frames.encode(messages[i], codec);
+			}
+			encode = Math.min(encode, System.nanoTime() - start);
+			total = 0;
+			start = System.nanoTime();
+			for (ByteBuffer f : frames) {
+				total += f.remaining();
+				ByteBuffer body = f.duplicate();
+				body.position(body.position() + Frames.HEADER);
+				Frames.decode(body, codec);
+			}
+			decode = Math.min(decode, System.nanoTime() - start);
+		}
+		print(name, total, messages.length, encode, decode);
+	}
+
+	private static void print(String name, long bytes, int count, long encode, long decode) {
+		System.out.println(String.format("%-12s %-10.1f %-14d %-14d", name, (double) bytes / count,
+				count * 1000000000L / Math.max(1, encode), count * 1000000000L / Math.max(1, decode)));
+	}
+}
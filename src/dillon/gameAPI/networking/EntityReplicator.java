@@ -0,0 +1,371 @@
+package dillon.gameAPI.networking;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import dillon.gameAPI.entity.Entity;
+import dillon.gameAPI.event.EEHandler;
+import dillon.gameAPI.event.EventSystem;
+import dillon.gameAPI.event.NetworkEvent;
+import dillon.gameAPI.event.UpdateEvent;
+import dillon.gameAPI.security.RequestedAction;
+import dillon.gameAPI.security.SecurityKey;
+import dillon.gameAPI.security.SecuritySystem;
+
+/**
+ * Keeps the entities on clients in sync with the server. Every update, each
+ * client is sent only the fields that changed since the last snapshot it
+ * acknowledged, so the traffic follows how much changes rather than how many
+ * entities there are. Now and then a client gets a keyframe with everything,
+ * and it gets one whenever it falls too far behind. Clients use
+ * ReplicationClient to receive them.
+ *
+ * @author Dillon - Github dg092099
+ * @since V2.2.2
+ */
+public class EntityReplicator {
+	private static final IdentityHashMap<Entity, Integer> ids = new IdentityHashMap<Entity, Integer>(); // Registered
+	// entities and their network ids.
+	private static final LinkedHashMap<Integer, Entity> entities = new LinkedHashMap<Integer, Entity>(); // By
+	// id.
+	private static final ConcurrentHashMap<ClientConnector, ClientState> clients = new ConcurrentHashMap<ClientConnector, ClientState>();
+	private static int nextId = 1;
+	private static int seq = 0; // The number of the last snapshot.
+	private static int keyframeInterval = 60; // Updates between keyframes.
+	private static EEHandler<UpdateEvent> updateHandler;
+	private static EEHandler<NetworkEvent> networkHandler;
+	private static long keyframes = 0, deltas = 0, bytesSent = 0;
+
+	/**
+	 * What the server knows about one client.
+	 */
+	private static class ClientState {
+		volatile int acked = -1; // The newest snapshot the client has.
+		volatile boolean needsKeyframe = true;
+		int lastKeyframe = 0; // When it was last sent a keyframe.
+		final LinkedHashMap<Integer, HashMap<Integer, int[]>> sent = new LinkedHashMap<Integer, HashMap<Integer, int[]>>(); // Snapshots
+		// sent to it, by number, oldest first.
+	}
+
+	private EntityReplicator() {
+	}
+
+	/**
+	 * Starts sending snapshots to the server's clients.
+	 *
+	 * @param k
+	 *            The security key.
+	 */
+	public static synchronized void start(SecurityKey k) {
+		SecuritySystem.checkPermission(k, RequestedAction.START_NET_SERVER);
+		if (updateHandler != null) {
+			return;
+		}
+		EventSystem.addHandler(updateHandler = new EEHandler<UpdateEvent>() {
+			@Override
+			public void handle(UpdateEvent evt) {
+				sendSnapshots();
+			}
+
+			@Override
+			public int getPriority() {
+				return Integer.MAX_VALUE; // After the entities have moved.
+			}
+		}, k);
+		EventSystem.addHandler(networkHandler = new EEHandler<NetworkEvent>() {
+			@Override
+			public void handle(NetworkEvent evt) {
+				ClientConnector cc = evt.getConnector();
+				if (cc == null) {
+					return;
+				}
+				if (evt.getMode() == NetworkEvent.NetworkMode.DISCONNECT) {
+					clients.remove(cc);
+				} else if (evt.getMode() == NetworkEvent.NetworkMode.MESSAGE
+						&& Replication.CHANNEL.equals(evt.getMessage().getOriginator())) {
+					acknowledge(cc, evt.getMessage().getMessage());
+				}
+			}
+
+			@Override
+			public int getPriority() {
+				return 0;
+			}
+		}, k);
+	}
+
+	/**
+	 * Stops sending snapshots.
+	 *
+	 * @param k
+	 *            The security key.
+	 */
+	public static synchronized void stop(SecurityKey k) {
+		SecuritySystem.checkPermission(k, RequestedAction.STOP_NET_SERVER);
+		if (updateHandler == null) {
+			return;
+		}
+		EventSystem.removeHandler(updateHandler);
+		EventSystem.removeHandler(networkHandler);
+		updateHandler = null;
+		networkHandler = null;
+		clients.clear();
+	}
+
+	/**
+	 * Starts replicating an entity.
+	 *
+	 * @param e
+	 *            The entity. Its type is sent so the client knows what to make.
+	 * @return Its network id, the same on every client.
+	 */
+	public static synchronized int register(Entity e) {
+		if (e == null) {
+			throw new IllegalArgumentException("The entity must not be null.");
+		}
+		Integer id = ids.get(e);
+		if (id != null) {
+			return id;
+		}
+		id = nextId++;
+		ids.put(e, id);
+		entities.put(id, e);
+		return id;
+	}
+
+	/**
+	 * Stops replicating an entity. Clients remove their copy. Destroyed entities
+	 * are stopped on their own.
+	 *
+	 * @param e
+	 *            The entity.
+	 */
+	public static synchronized void unregister(Entity e) {
+		Integer id = ids.remove(e);
+		if (id != null) {
+			entities.remove(id);
+		}
+	}
+
+	/**
+	 * Gets the network id of an entity.
+	 *
+	 * @param e
+	 *            The entity.
+	 * @return The id, or -1 if it isn't replicated.
+	 */
+	public static synchronized int getId(Entity e) {
+		Integer id = ids.get(e);
+		return id != null ? id : -1;
+	}
+
+	/**
+	 * Sets how often clients are sent everything, even if they are up to date.
+	 *
+	 * @param updates
+	 *            The updates between keyframes.
+	 * @param k
+	 *            The security key.
+	 */
+	public static synchronized void setKeyframeInterval(int updates, SecurityKey k) {
+		SecuritySystem.checkPermission(k, RequestedAction.START_NET_SERVER);
+		if (updates <= 0) {
+			throw new IllegalArgumentException("The keyframe interval must be positive.");
+		}
+		keyframeInterval = updates;
+	}
+
+	/**
+	 * Handles an acknowledgement from a client.
+	 *
+	 * @param cc
+	 *            The client.
+	 * @param text
+	 *            The message.
+	 */
+	private static void acknowledge(ClientConnector cc, String text) {
+		ClientState cs = clients.get(cc);
+		if (cs == null) {
+			return;
+		}
+		if (text.startsWith("ACK:")) {
+			try {
+				int n = Integer.parseInt(text.substring(4));
+				if (n > cs.acked) {
+					cs.acked = n;
+				}
+			} catch (NumberFormatException e) {
+			}
+		} else if (text.equals("NACK")) {
+			cs.needsKeyframe = true;
+		}
+	}
+
+	/**
+	 * Captures the entities and sends each client what it is missing.
+	 */
+	private static synchronized void sendSnapshots() {
+		Iterator<Entity> it = entities.values().iterator();
+		while (it.hasNext()) { // Stop replicating destroyed entities.
+			Entity e = it.next();
+			if (e.isDestroyed()) {
+				it.remove();
+				ids.remove(e);
+			}
+		}
+		if (!NetworkServer.getServerRunning()) {
+			return;
+		}
+		seq++;
+		ArrayList<ClientConnector> connectors = NetworkServer.getConnectors();
+		// Forget clients that have left. One whose DISCONNECT was handled while the
+		// last pass went on may have been given a state again.
+		clients.keySet().retainAll(new HashSet<ClientConnector>(connectors));
+		HashMap<Integer, int[]> current = null; // Captured when a client needs it.
+		for (ClientConnector cc : connectors) {
+			ClientState cs = clients.get(cc);
+			if (cs == null) {
+				cs = new ClientState();
+				clients.put(cc, cs);
+			}
+			if (current == null) {
+				current = new HashMap<Integer, int[]>(entities.size() * 2);
+				for (java.util.Map.Entry<Integer, Entity> en : entities.entrySet()) {
+					int[] v = new int[Replication.FIELDS];
+					Replication.capture(en.getValue(), v);
+					current.put(en.getKey(), v);
+				}
+			}
+			int acked = cs.acked; // Read once, the client may acknowledge another meanwhile.
+			HashMap<Integer, int[]> base = acked >= 0 ? cs.sent.get(acked) : null;
+			boolean keyframe = cs.needsKeyframe || base == null || seq - cs.lastKeyframe >= keyframeInterval;
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+			int records = keyframe ? encodeKeyframe(bytes, current) : encodeDelta(bytes, current, base, acked);
+			if (records == 0 && !keyframe) {
+				continue; // Nothing changed since what it has.
+			}
+			if (keyframe) {
+				cs.needsKeyframe = false;
+				cs.lastKeyframe = seq;
+				keyframes++;
+			} else {
+				deltas++;
+			}
+			cs.sent.put(seq, current);
+			Iterator<Integer> old = cs.sent.keySet().iterator();
+			while (cs.sent.size() > Replication.HISTORY) {
+				old.next();
+				old.remove();
+			}
+			bytesSent += bytes.size();
+			cc.send(Replication.wrap(bytes));
+		}
+	}
+
+	/**
+	 * Writes a keyframe, with every field of every entity.
+	 *
+	 * @param out
+	 *            The output.
+	 * @param current
+	 *            The entities' fields.
+	 * @return The number of records.
+	 */
+	private static int encodeKeyframe(ByteArrayOutputStream out, HashMap<Integer, int[]> current) {
+		out.write(Replication.KEYFRAME);
+		Replication.writeUnsigned(out, seq);
+		Replication.writeUnsigned(out, current.size());
+		for (java.util.Map.Entry<Integer, int[]> en : current.entrySet()) {
+			int[] v = en.getValue();
+			Replication.writeUnsigned(out, en.getKey());
+			out.write(Replication.SPAWN | (1 << Replication.FIELDS) - 1);
+			Replication.writeString(out, entities.get(en.getKey()).getType());
+			for (int f = 0; f < Replication.FIELDS; f++) {
+				Replication.writeSigned(out, v[f]);
+			}
+		}
+		return current.size();
+	}
+
+	/**
+	 * Writes a delta, with only the fields that differ from the base.
+	 *
+	 * @param out
+	 *            The output.
+	 * @param current
+	 *            The entities' fields.
+	 * @param base
+	 *            The fields in the snapshot the client has.
+	 * @param baseSeq
+	 *            That snapshot's number.
+	 * @return The number of records.
+	 */
+	private static int encodeDelta(ByteArrayOutputStream out, HashMap<Integer, int[]> current,
+			HashMap<Integer, int[]> base, int baseSeq) {
+		ByteArrayOutputStream body = new ByteArrayOutputStream(64);
+		int records = 0;
+		for (java.util.Map.Entry<Integer, int[]> en : current.entrySet()) {
+			int[] v = en.getValue();
+			int[] b = base.get(en.getKey());
+			int mask = 0;
+			if (b == null) { // New since the base, send all of it.
+				mask = Replication.SPAWN | (1 << Replication.FIELDS) - 1;
+				b = new int[Replication.FIELDS];
+			} else {
+				for (int f = 0; f < Replication.FIELDS; f++) {
+					if (v[f] != b[f]) {
+						mask |= 1 << f;
+					}
+				}
+				if (mask == 0) {
+					continue;
+				}
+			}
+			records++;
+			Replication.writeUnsigned(body, en.getKey());
+			body.write(mask);
+			if ((mask & Replication.SPAWN) != 0) {
+				Replication.writeString(body, entities.get(en.getKey()).getType());
+			}
+			for (int f = 0; f < Replication.FIELDS; f++) {
+				if ((mask & 1 << f) != 0) {
+					Replication.writeSigned(body, v[f] - b[f]);
+				}
+			}
+		}
+		for (Integer id : base.keySet()) {
+			if (!current.containsKey(id)) { // Removed since the base.
+				records++;
+				Replication.writeUnsigned(body, id);
+				body.write(Replication.REMOVE);
+			}
+		}
+		out.write(Replication.DELTA);
+		Replication.writeUnsigned(out, seq);
+		Replication.writeUnsigned(out, baseSeq);
+		Replication.writeUnsigned(out, records);
+		byte[] b = body.toByteArray();
+		out.write(b, 0, b.length);
+		return records;
+	}
+
+	public static synchronized String getDebug() {
+		String data = "\n\ndillon.gameAPI.networking.EntityReplicator Debug:\n";
+		data += String.format("%-15s %-7s\n", "Key", "Value");
+		data += String.format("%-15s %-7s\n", "---", "-----");
+		data += String.format("%-15s %-7s\n", "Running:", updateHandler != null ? "Yes" : "No");
+		data += String.format("%-15s %-7d\n", "Entities:", entities.size());
+		data += String.format("%-15s %-7d\n", "Clients:", clients.size());
+		data += String.format("%-15s %-7d\n", "Snapshot:", seq);
+		data += String.format("%-15s %-7d\n", "Keyframes:", keyframes);
+		data += String.format("%-15s %-7d\n", "Deltas:", deltas);
+		data += String.format("%-15s %-7d\n", "Bytes Sent:", bytesSent);
+		return data;
+	}
+}
@@ -0,0 +1,138 @@
+package dillon.gameAPI.networking;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Puts messages into frames for sending. A frame is the length of the message
+ * as an int, followed by the message. Both server engines and the client use
+ * frames, so a reader always knows where a message ends without reading past
+ * it. What the message looks like inside its frame is up to the codec.
+ *
+ * @author Dillon - Github dg092099
+ * @since V2.2.2
+ */
+final class Frames {
+	static final int HEADER = 4; // The bytes taken by the length.
+	static final int MAX_FRAME = 1 << 20; // The largest message allowed.
+
+	private Frames() {
+	}
+
+	/**
+	 * Encodes a message into a frame.
+	 *
+	 * @param msg
+	 *            The message.
+	 * @param codec
+	 *            The codec.
+	 * @return The frame, ready to be written.
+	 * @throws IOException
+	 *             If the message couldn't be encoded.
+	 */
+	static ByteBuffer encode(Message msg, MessageCodec codec) throws IOException {
+		if (msg == null) {
+			throw new IllegalArgumentException("The message must not be null.");
+		}
+		FrameBuffer bytes = new FrameBuffer();
+		bytes.write(new byte[HEADER]); // Filled in once the length is known.
+		codec.encode(msg, bytes);
+		ByteBuffer frame = bytes.toBuffer();
+		int length = frame.remaining() - HEADER;
+		if (length > MAX_FRAME) {
+			throw new IOException("The message is too big: " + length + " bytes.");
+		}
+		frame.putInt(0, length);
+		return frame;
+	}
+
+	/**
+	 * Decodes the message in a frame.
+	 *
+	 * @param body
+	 *            The frame without its length, from its position to its limit.
+	 * @param codec
+	 *            The codec.
+	 * @return The message.
+	 * @throws IOException
+	 *             If the frame doesn't hold a message.
+	 */
+	static Message decode(ByteBuffer body, MessageCodec codec) throws IOException {
+		try {
+			return codec.decode(body);
+		} catch (BufferUnderflowException e) {
+			throw new IOException("The frame is shorter than its message.", e);
+		}
+	}
+
+	/**
+	 * Checks the length at the start of a frame.
+	 *
+	 * @param length
+	 *            The length.
+	 * @throws IOException
+	 *             If no message could be that long.
+	 */
+	static void checkLength(int length) throws IOException {
+		if (length < 0 || length > MAX_FRAME) {
+			throw new IOException("Bad frame length: " + length);
+		}
+	}
+
+	/**
+	 * Reads a frame from a stream, waiting until all of it arrives.
+	 *
+	 * @param in
+	 *            The stream.
+	 * @param codec
+	 *            The codec.
+	 * @return The message.
+	 * @throws IOException
+	 *             If the stream ends or the frame is broken.
+	 */
+	static Message read(DataInputStream in, MessageCodec codec) throws IOException {
+		int length = in.readInt();
+		checkLength(length);
+		byte[] b = new byte[length];
+		in.readFully(b);
+		return decode(ByteBuffer.wrap(b), codec);
+	}
+
+	/**
+	 * Writes a frame to a stream. The frame's position isn't changed, so it can
+	 * be written again. Frames that aren't on an array are copied out first.
+	 *
+	 * @param out
+	 *            The stream.
+	 * @param frame
+	 *            The frame.
+	 * @throws IOException
+	 *             If it couldn't be written.
+	 */
+	static void write(OutputStream out, ByteBuffer frame) throws IOException {
+		if (frame.hasArray()) {
+			out.write(frame.array(), frame.arrayOffset() + frame.position(), frame.remaining());
+		} else {
+			byte[] b = new byte[frame.remaining()];
+			frame.duplicate().get(b);
+			out.write(b);
+		}
+	}
+
+	/**
+	 * A byte array stream that hands over its array instead of copying it.
+	 */
+	private static class FrameBuffer extends ByteArrayOutputStream {
+		FrameBuffer() {
+			super(64);
+		}
+
+		ByteBuffer toBuffer() {
+			return ByteBuffer.wrap(buf, 0, count);
+		}
+	}
+}
@@ -0,0 +1,168 @@
+package dillon.gameAPI.networking;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import dillon.gameAPI.errors.NetworkingError;
+
+/**
+ * Passes connections through to a server, holding everything back for a set
+ * time in each direction. It stands in for a slow network when testing on one
+ * computer: connect the client to the proxy instead of the server.
+ *
+ * @author Dillon - Github dg092099
+ * @since V2.2.2
+ */
+public class LatencyProxy {
+	private final ServerSocket server; // Where clients connect.
+	private final String host; // The real server.
+	private final int port;
+	private volatile int delay; // Milliseconds each way.
+	private volatile boolean running = true;
+	private final ScheduledExecutorService sender; // Sends the held back data.
+
+	/**
+	 * Starts a proxy.
+	 *
+	 * @param listenPort
+	 *            The port clients connect to.
+	 * @param host
+	 *            The server's address.
+	 * @param port
+	 *            The server's port.
+	 * @param delayMillis
+	 *            How long data is held back each way. The round trip is twice
+	 *            this.
+	 * @throws NetworkingError
+	 *             If the port couldn't be opened.
+	 */
+	public LatencyProxy(int listenPort, String host, int port, int delayMillis) throws NetworkingError {
+		if (delayMillis < 0) {
+			throw new IllegalArgumentException("The delay must not be negative.");
+		}
+		this.host = host;
+		this.port = port;
+		delay = delayMillis;
+		try {
+			server = new ServerSocket(listenPort);
+		} catch (IOException e) {
+			e.printStackTrace();
+			throw new NetworkingError("Error when connecting port.");
+		}
+		sender = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "Latency Proxy Sender");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		Thread t = new Thread(new acceptor(), "Latency Proxy");
+		t.setDaemon(true);
+		t.start();
+	}
+
+	/**
+	 * Sets how long data is held back each way. Data already held keeps its
+	 * time.
+	 *
+	 * @param delayMillis
+	 *            The delay.
+	 */
+	public void setDelay(int delayMillis) {
+		if (delayMillis < 0) {
+			throw new IllegalArgumentException("The delay must not be negative.");
+		}
+		delay = delayMillis;
+	}
+
+	/**
+	 * Stops accepting clients and drops the data being held.
+	 */
+	public void close() {
+		running = false;
+		sender.shutdownNow();
+		try {
+			server.close();
+		} catch (IOException e) {
+		}
+	}
+
+	/**
+	 * Connects each client to the server.
+	 */
+	class acceptor implements Runnable {
+		@Override
+		public void run() {
+			while (running) {
+				try {
+					Socket client = server.accept();
+					Socket remote = new Socket(host, port);
+					client.setTcpNoDelay(true);
+					remote.setTcpNoDelay(true);
+					new Thread(new pump(client, remote), "Latency Proxy Up").start();
+					new Thread(new pump(remote, client), "Latency Proxy Down").start();
+				} catch (IOException e) {
+				}
+			}
+		}
+	}
+
+	/**
+	 * Copies from one socket to the other, late.
+	 */
+	class pump implements Runnable {
+		private final Socket from, to;
+
+		pump(Socket from, Socket to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		public void run() {
+			try {
+				InputStream in = from.getInputStream();
+				final OutputStream out = to.getOutputStream();
+				byte[] buffer = new byte[8192];
+				int read;
+				long due = System.nanoTime(); // When the last chunk is sent, so lowering the delay can't reorder.
+				while (running && (read = in.read(buffer)) >= 0) {
+					final byte[] chunk = Arrays.copyOf(buffer, read);
+					due = Math.max(due, System.nanoTime() + delay * 1000000L);
+					sender.schedule(new Runnable() {
+						@Override
+						public void run() {
+							try {
+								out.write(chunk);
+								out.flush();
+							} catch (IOException e) {
+							}
+						}
+					}, due - System.nanoTime(), TimeUnit.NANOSECONDS);
+				}
+				sender.schedule(new Runnable() { // Close once the held data is sent.
+					@Override
+					public void run() {
+						try {
+							to.shutdownOutput();
+						} catch (IOException e) {
+						}
+					}
+				}, Math.max(due - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+			} catch (IOException e) {
+			} catch (RejectedExecutionException e) {
+				// The proxy was closed.
+			}
+		}
+	}
+}
@@ -0,0 +1,48 @@
+package dillon.gameAPI.networking;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Turns messages into bytes for sending, and back again. Both ends of a
+ * connection must use the same codec.
+ *
+ * @author Dillon - Github dg092099
+ * @since V2.2.2
+ */
+public interface MessageCodec {
+	/**
+	 * A compact binary format: a type tag, then each field as its length and its
+	 * UTF-8 bytes. This is the default.
+	 */
+	public static final MessageCodec BINARY = new BinaryCodec();
+	/**
+	 * Java object serialization, as used before codecs. It is much bigger and
+	 * slower, but will carry subclasses of Message with their own fields.
+	 */
+	public static final MessageCodec SERIALIZED = new SerializedCodec();
+
+	/**
+	 * Writes a message.
+	 *
+	 * @param msg
+	 *            The message.
+	 * @param out
+	 *            Where to write it.
+	 * @throws IOException
+	 *             If it couldn't be encoded.
+	 */
+	public void encode(Message msg, OutputStream out) throws IOException;
+
+	/**
+	 * Reads a message.
+	 *
+	 * @param body
+	 *            The encoded message, from the buffer's position to its limit.
+	 * @return The message.
+	 * @throws IOException
+	 *             If the bytes don't hold a message.
+	 */
+	public Message decode(ByteBuffer body) throws IOException;
+}
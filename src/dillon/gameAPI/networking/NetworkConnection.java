@@ -1,13 +1,16 @@
 package dillon.gameAPI.networking;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.logging.Logger;
 
@@ -26,9 +29,16 @@ import dillon.gameAPI.security.SecuritySystem;
  */
 public class NetworkConnection {
 	private static Socket sock; // The connection.
-	private static ObjectInputStream ois; // Input stream.
-	private static ObjectOutputStream oos; // output stream.
+	private static DataInputStream in; // Input stream.
+	private static DataOutputStream out; // output stream.
 	private static SecurityKey key;
+	private static volatile MessageCodec codec = MessageCodec.BINARY; // How
+	// messages are encoded, the same as the server.
+	private static final SendQueue queue = new SendQueue(); // Messages waiting to be written.
+	private static volatile boolean batching = true; // If messages wait for the end of the tick.
+	private static volatile int maxBatchBytes = 16 * 1024; // Write the queue early once it is this big.
+	private static volatile long maxBatchNanos = 20000000L; // Write the queue early once it waited this long.
+	private static volatile boolean tcpNoDelay = true; // Turns off Nagle's algorithm.
 
 	/**
 	 * Tells the engine to connect to a server.
@@ -48,9 +58,9 @@ public class NetworkConnection {
 		try {
 			// Open socket
 			sock = new Socket(host, port);
-			oos = new ObjectOutputStream(sock.getOutputStream());
-			ois = new ObjectInputStream(sock.getInputStream());
-			oos.flush();
+			sock.setTcpNoDelay(tcpNoDelay);
+			out = new DataOutputStream(new BufferedOutputStream(sock.getOutputStream(), ClientConnector.BATCH_BUFFER));
+			in = new DataInputStream(new BufferedInputStream(sock.getInputStream()));
 			// Start listener
 			Thread t = new Thread(new listener());
 			running = true;
@@ -62,6 +72,80 @@ public class NetworkConnection {
 		}
 	}
 
+	/**
+	 * Sets how messages are encoded. It must match the server's codec, and
+	 * should be set before connecting.
+	 *
+	 * @param c
+	 *            The codec.
+	 * @param k
+	 *            The security key.
+	 * @since V2.2.2
+	 */
+	public static void setCodec(MessageCodec c, SecurityKey k) {
+		SecuritySystem.checkPermission(k, RequestedAction.CONNECT);
+		if (c == null) {
+			throw new IllegalArgumentException("The codec must not be null.");
+		}
+		codec = c;
+	}
+
+	/**
+	 * Gets how messages are encoded.
+	 *
+	 * @return The codec.
+	 * @since V2.2.2
+	 */
+	public static MessageCodec getCodec() {
+		return codec;
+	}
+
+	/**
+	 * Sets how messages to the server are batched. While batching, messages sent
+	 * during a tick wait, and are written together at the end of it.
+	 *
+	 * @param enabled
+	 *            If messages should be batched. If not, each is written when it
+	 *            is sent.
+	 * @param maxBytes
+	 *            Once this many bytes are waiting, they are written straight
+	 *            away.
+	 * @param maxDelayMillis
+	 *            Once a message has waited about this long, the queue is written
+	 *            even if the tick hasn't ended.
+	 * @param k
+	 *            The security key.
+	 * @since V2.2.2
+	 */
+	public static void setBatching(boolean enabled, int maxBytes, int maxDelayMillis, SecurityKey k) {
+		SecuritySystem.checkPermission(k, RequestedAction.CONNECT);
+		if (maxBytes <= 0 || maxDelayMillis <= 0) {
+			throw new IllegalArgumentException("The batch limits must be positive.");
+		}
+		maxBatchBytes = maxBytes;
+		maxBatchNanos = maxDelayMillis * 1000000L;
+		batching = enabled;
+		if (!enabled) {
+			flush();
+		}
+	}
+
+	/**
+	 * Sets if TCP_NODELAY is used, which turns off Nagle's algorithm so small
+	 * writes are sent straight away. It is on by default, since batching does
+	 * the same job without the wait. It affects the next connection.
+	 *
+	 * @param noDelay
+	 *            If TCP_NODELAY should be used.
+	 * @param k
+	 *            The security key.
+	 * @since V2.2.2
+	 */
+	public static void setTcpNoDelay(boolean noDelay, SecurityKey k) {
+		SecuritySystem.checkPermission(k, RequestedAction.CONNECT);
+		tcpNoDelay = noDelay;
+	}
+
 	/**
 	 * Connects to a server, using the Inet socket address.
 	 *
@@ -165,11 +249,12 @@ public class NetworkConnection {
 			running = false;
 			// Send shutdown message
 			Message msg = new Message("SHUTDOWN", "Client");
-			oos.writeObject(msg);
-			oos.flush();
+			synchronized (NetworkConnection.class) {
+				write(queue.drain());
+				Frames.write(out, Frames.encode(msg, codec));
+				out.flush();
+			}
 			// Close socket
-			oos.close();
-			ois.close();
 			sock.close();
 		} catch (Exception e) {
 		}
@@ -198,38 +283,121 @@ public class NetworkConnection {
 		public void run() {
 			while (running) {
 				try {
-					Message rec = (Message) ois.readObject();// Gets message
-					if (rec == null) {
-						continue;
-					}
-					if (rec.getMessage().equals("SHUTDOWN")) {
+					Message rec = Frames.read(in, codec);// Gets message
+					if ("SHUTDOWN".equals(rec.getMessage())) {
 						disconnect(key);
 						return;
 					}
 					rec.setIP(sock.getRemoteSocketAddress().toString());
 					EventSystem.broadcastMessage(new NetworkEvent(NetworkEvent.NetworkMode.MESSAGE, null, rec),
 							NetworkEvent.class, key);
-				} catch (ClassNotFoundException | IOException e) {
+				} catch (IOException e) {
+					// The server is gone or sent something broken.
+					if (running) {
+						running = false;
+						try {
+							sock.close();
+						} catch (IOException ex) {
+						}
+					}
 				}
 			}
 		}
 	}
 
 	/**
-	 * Sends a message to the server.
+	 * Sends a message to the server. While batching, it waits until the end of
+	 * the tick.
 	 *
 	 * @param msg
 	 *            The message to be sent.
 	 */
-	public static void sendMessage(Message msg) {
+	public static synchronized void sendMessage(Message msg) {
 		try {
-			oos.writeObject(msg);
+			ByteBuffer frame = Frames.encode(msg, codec);
+			if (batching) {
+				if (queue.add(frame, maxBatchBytes)) {
+					flush();
+				} else {
+					SendQueue.startTimer();
+				}
+				return;
+			}
+			write(queue.drain());
+			Frames.write(out, frame);
+			out.flush();
+			queue.count(frame);
 		} catch (IOException e) {
 			// TODO Auto-generated catch block
 			e.printStackTrace();
 		}
 	}
 
+	/**
+	 * Writes every queued message now. The engine calls this at the end of each
+	 * tick.
+	 *
+	 * @since V2.2.2
+	 */
+	public static synchronized void flush() {
+		if (out == null) {
+			return; // Not connected yet, keep them.
+		}
+		ByteBuffer[] batch = queue.drain();
+		if (batch.length == 0) {
+			return;
+		}
+		try {
+			write(batch);
+			out.flush();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Writes the queued messages if the oldest has waited too long.
+	 */
+	static void flushOverdue() {
+		if (queue.isOverdue(maxBatchNanos)) {
+			flush();
+		}
+	}
+
+	/**
+	 * Writes frames to the stream without flushing it.
+	 *
+	 * @param batch
+	 *            The frames.
+	 * @throws IOException
+	 *             If they couldn't be written.
+	 */
+	private static void write(ByteBuffer[] batch) throws IOException {
+		for (ByteBuffer f : batch) {
+			Frames.write(out, f);
+		}
+	}
+
+	/**
+	 * Gets how many messages are waiting to be written.
+	 *
+	 * @return The amount.
+	 * @since V2.2.2
+	 */
+	public static int getQueuedMessages() {
+		return queue.getQueuedMessages();
+	}
+
+	/**
+	 * Gets how many bytes are waiting to be written.
+	 *
+	 * @return The bytes.
+	 * @since V2.2.2
+	 */
+	public static int getQueuedBytes() {
+		return queue.getQueuedBytes();
+	}
+
 	public static String getDebug() {
 		String data = "\n\ndillon.gameAPI.networking.NetworkConnection Debug:\n";
 		data += String.format("%-15s %-5s\n", "Key", "Value");
@@ -238,6 +406,9 @@ public class NetworkConnection {
 				sock != null ? sock.getInetAddress().getHostAddress() : "Disconnected");
 		data += String.format("%-15s %-5s\n", "Searching:", keepSearching ? "Yes" : "No");
 		data += String.format("%-15s %-5s\n", "Listening:", running ? "Yes" : "No");
+		data += String.format("%-15s %-5s\n", "Batching:", batching ? "Yes" : "No");
+		data += String.format("%-15s %-5s\n", "No Delay:", tcpNoDelay ? "Yes" : "No");
+		data = queue.getDebug(data);
 		return data;
 	}
 }
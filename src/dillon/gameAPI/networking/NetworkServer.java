@@ -4,7 +4,9 @@ import java.io.IOException;
 import java.net.InetAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.logging.Logger;
 
 import dillon.gameAPI.errors.NetworkingError;
@@ -24,10 +26,37 @@ public class NetworkServer {
 	private static volatile boolean runServer = false; // Whether if the server
 														// should be running.
 	private static ServerSocket server; // The server socket itself.
+	private static SelectorServer selectorServer; // The selector engine, if used.
+	private static ServerMode mode = ServerMode.BLOCKING; // The engine in use.
+	private static volatile MessageCodec codec = MessageCodec.BINARY; // How
+	// messages to and from new clients are encoded.
+	private static volatile boolean batching = true; // If messages wait for the end of the tick.
+	private static volatile int maxBatchBytes = 16 * 1024; // Write a queue early once it is this big.
+	private static volatile long maxBatchNanos = 20000000L; // Write a queue early once it waited this long.
+	private static volatile boolean tcpNoDelay = true; // Turns off Nagle's algorithm on new clients.
 	private static SecurityKey key;
 
 	/**
-	 * Starts a server.
+	 * How the server handles its clients.
+	 *
+	 * @author Dillon - Github dg092099
+	 * @since V2.2.2
+	 */
+	public static enum ServerMode {
+		/**
+		 * A thread per client, each blocking until its client sends something.
+		 * Fine for a handful of clients.
+		 */
+		BLOCKING,
+		/**
+		 * A few IO threads using selectors, shared by every client. Use this for
+		 * many clients.
+		 */
+		SELECTOR
+	}
+
+	/**
+	 * Starts a server using the blocking engine.
 	 *
 	 * @param port
 	 *            The port number to use.
@@ -38,14 +67,42 @@ public class NetworkServer {
 	 *             Thrown when it cannot connect to the port.
 	 */
 	public static String startServer(int port, SecurityKey k) throws NetworkingError {
+		return startServer(port, ServerMode.BLOCKING, k);
+	}
+
+	/**
+	 * Starts a server.
+	 *
+	 * @param port
+	 *            The port number to use.
+	 * @param serverMode
+	 *            The engine to use.
+	 * @param k
+	 *            The security key.
+	 * @return The host's IP
+	 * @throws NetworkingError
+	 *             Thrown when it cannot connect to the port.
+	 * @since V2.2.2
+	 */
+	public static String startServer(int port, ServerMode serverMode, SecurityKey k) throws NetworkingError {
 		SecuritySystem.checkPermission(k, RequestedAction.START_NET_SERVER);
+		if (serverMode == null) {
+			throw new IllegalArgumentException("The server mode must not be null.");
+		}
 		key = k;
+		mode = serverMode;
 		try {
 			// Instantiate server
-			server = new ServerSocket(port, 100);
-			runServer = true;
-			Thread t = new Thread(new server());
-			t.start();
+			if (mode == ServerMode.SELECTOR) {
+				int threads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+				selectorServer = new SelectorServer(port, threads, k);
+				runServer = true;
+			} else {
+				server = new ServerSocket(port, 100);
+				runServer = true;
+				Thread t = new Thread(new server());
+				t.start();
+			}
 		} catch (Exception e) {
 			e.printStackTrace();
 			throw new NetworkingError("Error when connecting port.");
@@ -57,6 +114,115 @@ public class NetworkServer {
 		}
 	}
 
+	/**
+	 * Sets how messages are encoded. Clients already connected keep the codec
+	 * they connected with. Clients must use the same codec, see
+	 * NetworkConnection.setCodec.
+	 *
+	 * @param c
+	 *            The codec.
+	 * @param k
+	 *            The security key.
+	 * @since V2.2.2
+	 */
+	public static void setCodec(MessageCodec c, SecurityKey k) {
+		SecuritySystem.checkPermission(k, RequestedAction.START_NET_SERVER);
+		if (c == null) {
+			throw new IllegalArgumentException("The codec must not be null.");
+		}
+		codec = c;
+	}
+
+	/**
+	 * Gets how messages are encoded.
+	 *
+	 * @return The codec.
+	 * @since V2.2.2
+	 */
+	public static MessageCodec getCodec() {
+		return codec;
+	}
+
+	/**
+	 * Sets how messages to clients are batched. While batching, messages sent
+	 * during a tick wait, and are written together at the end of it.
+	 *
+	 * @param enabled
+	 *            If messages should be batched. If not, each is written when it
+	 *            is sent.
+	 * @param maxBytes
+	 *            Once this many bytes are waiting, they are written straight
+	 *            away.
+	 * @param maxDelayMillis
+	 *            Once a message has waited about this long, the queue is written
+	 *            even if the tick hasn't ended.
+	 * @param k
+	 *            The security key.
+	 * @since V2.2.2
+	 */
+	public static void setBatching(boolean enabled, int maxBytes, int maxDelayMillis, SecurityKey k) {
+		SecuritySystem.checkPermission(k, RequestedAction.START_NET_SERVER);
+		if (maxBytes <= 0 || maxDelayMillis <= 0) {
+			throw new IllegalArgumentException("The batch limits must be positive.");
+		}
+		maxBatchBytes = maxBytes;
+		maxBatchNanos = maxDelayMillis * 1000000L;
+		batching = enabled;
+		if (!enabled) {
+			flush();
+		}
+	}
+
+	/**
+	 * Sets if TCP_NODELAY is used, which turns off Nagle's algorithm so small
+	 * writes are sent straight away. It is on by default, since batching does
+	 * the same job without the wait. It affects clients that connect after.
+	 *
+	 * @param noDelay
+	 *            If TCP_NODELAY should be used.
+	 * @param k
+	 *            The security key.
+	 * @since V2.2.2
+	 */
+	public static void setTcpNoDelay(boolean noDelay, SecurityKey k) {
+		SecuritySystem.checkPermission(k, RequestedAction.START_NET_SERVER);
+		tcpNoDelay = noDelay;
+	}
+
+	static boolean isBatching() {
+		return batching;
+	}
+
+	static int getMaxBatchBytes() {
+		return maxBatchBytes;
+	}
+
+	static boolean getTcpNoDelay() {
+		return tcpNoDelay;
+	}
+
+	/**
+	 * Writes the messages waiting for every client. The engine calls this at the
+	 * end of each tick.
+	 *
+	 * @since V2.2.2
+	 */
+	public static void flush() {
+		for (ClientConnector cc : connectors) {
+			cc.flush();
+		}
+	}
+
+	/**
+	 * Writes the messages for clients whose oldest message waited too long.
+	 */
+	static void flushOverdue() {
+		long max = maxBatchNanos;
+		for (ClientConnector cc : connectors) {
+			cc.flushIfOverdue(max);
+		}
+	}
+
 	/**
 	 * If the server is running.
 	 *
@@ -82,7 +248,7 @@ public class NetworkServer {
 					Logger.getLogger("Networking").info("Got client, " + s.getRemoteSocketAddress().toString());
 					// Pass control to client connectors.
 					ClientConnector cc = new ClientConnector(s, key);
-					connectors.add(cc);
+					addConnector(cc);
 					EventSystem.broadcastMessage(new NetworkEvent(NetworkEvent.NetworkMode.CONNECT, cc, null),
 							NetworkEvent.class, key);
 				} catch (IOException e) {
@@ -91,17 +257,103 @@ public class NetworkServer {
 		}
 	}
 
-	private static ArrayList<ClientConnector> connectors = new ArrayList<ClientConnector>(); // The
-																								// connected
-																								// clients.
+	private static final CopyOnWriteArrayList<ClientConnector> connectors = new CopyOnWriteArrayList<ClientConnector>(); // The
+	// connected clients. IO threads add and remove them while the game reads them.
+
+	/**
+	 * Picks which clients get a broadcast.
+	 *
+	 * @author Dillon - Github dg092099
+	 * @since V2.2.2
+	 */
+	public static interface connectorFilter {
+		/**
+		 * Checks if a client should get the message.
+		 *
+		 * @param cc
+		 *            The client.
+		 * @return If it should.
+		 */
+		public boolean accept(ClientConnector cc);
+	}
+
+	/**
+	 * Sends a message to every client.
+	 *
+	 * @param msg
+	 *            The message.
+	 * @return The number of clients it was sent to.
+	 * @since V2.2.2
+	 */
+	public static int broadcast(Message msg) {
+		return broadcast(msg, null);
+	}
+
+	/**
+	 * Sends a message to the clients the filter accepts. The message is encoded
+	 * once into a frame, which every client shares, so each extra client only
+	 * costs the write.
+	 *
+	 * @param msg
+	 *            The message.
+	 * @param filter
+	 *            The filter, or null for every client.
+	 * @return The number of clients it was sent to.
+	 * @since V2.2.2
+	 */
+	public static int broadcast(Message msg, connectorFilter filter) {
+		if (msg == null) {
+			throw new IllegalArgumentException("The message must not be null.");
+		}
+		MessageCodec frameCodec = null; // The codec the frame was encoded with.
+		ByteBuffer frame = null;
+		int sent = 0;
+		try {
+			for (ClientConnector cc : connectors) {
+				if (filter != null && !filter.accept(cc)) {
+					continue;
+				}
+				if (frame == null || cc.codec != frameCodec) { // Clients can only differ after setCodec.
+					frameCodec = cc.codec;
+					frame = Frames.encode(msg, frameCodec); // Kept on its array, so it is written
+					// without a copy.
+				}
+				cc.sendFrame(frame);
+				sent++;
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		return sent;
+	}
 
 	/**
-	 * Gets the arraylist of connectors.
+	 * Gets the connected clients.
 	 *
-	 * @return The arraylist
+	 * @return A copy of the list, which isn't changed when clients come and go.
 	 */
 	public static ArrayList<ClientConnector> getConnectors() {
-		return connectors;
+		return new ArrayList<ClientConnector>(connectors);
+	}
+
+	/**
+	 * Adds a connected client.
+	 *
+	 * @param cc
+	 *            The client.
+	 */
+	static void addConnector(ClientConnector cc) {
+		connectors.add(cc);
+	}
+
+	/**
+	 * Removes a client that has disconnected.
+	 *
+	 * @param cc
+	 *            The client.
+	 */
+	static void removeConnector(ClientConnector cc) {
+		connectors.remove(cc);
 	}
 
 	/**
@@ -114,10 +366,16 @@ public class NetworkServer {
 		SecuritySystem.checkPermission(k, RequestedAction.STOP_NET_SERVER);
 		try {
 			// Shutdown each connector.
-			for (int i = 0; i < connectors.size(); i++) {
-				connectors.get(i).shutdown();
+			for (ClientConnector cc : connectors) {
+				cc.shutdown();
+			}
+			if (selectorServer != null) {
+				selectorServer.close();
+				selectorServer = null;
+			}
+			if (server != null) {
+				server.close();
 			}
-			server.close();
 		} catch (Exception e) {
 		}
 	}
@@ -170,6 +428,19 @@ public class NetworkServer {
 		data += String.format("%-15s %-5s\n", "Key", "Value");
 		data += String.format("%-15s %-5s\n", "---", "-----");
 		data += String.format("%-15s %-5s\n", "Running:", runServer ? "Yes" : "No");
+		data += String.format("%-15s %-5s\n", "Mode:", mode);
+		data += String.format("%-15s %-5s\n", "Codec:", codec.getClass().getSimpleName());
+		if (selectorServer != null) {
+			data += String.format("%-15s %-5d\n", "IO Threads:", selectorServer.getThreads());
+		}
+		data += String.format("%-15s %-5d\n", "Clients:", connectors.size());
+		data += String.format("%-15s %-5s\n", "Batching:", batching ? "Yes" : "No");
+		data += String.format("%-15s %-5s\n", "No Delay:", tcpNoDelay ? "Yes" : "No");
+		int queued = 0;
+		for (ClientConnector cc : connectors) {
+			queued += cc.getQueuedBytes();
+		}
+		data += String.format("%-15s %-5d\n", "Queued Bytes:", queued);
 		data += "Connectors:\n";
 		for (ClientConnector cc : connectors) {
 			data = cc.getDebug(data);
@@ -0,0 +1,253 @@
+package dillon.gameAPI.networking;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicReference;
+
+import dillon.gameAPI.entity.Entity;
+import dillon.gameAPI.event.EEHandler;
+import dillon.gameAPI.event.EventSystem;
+import dillon.gameAPI.event.NetworkEvent;
+import dillon.gameAPI.event.UpdateEvent;
+import dillon.gameAPI.security.RequestedAction;
+import dillon.gameAPI.security.SecurityKey;
+import dillon.gameAPI.security.SecuritySystem;
+
+/**
+ * Moves the player's entity straight away instead of waiting for the server.
+ * Every update the current input is numbered, sent to PredictionServer and
+ * applied locally, and the entity moves by the same rules as on the server.
+ * When the server says where the entity really is after some input, the entity
+ * is put there and every input the server hasn't used yet is applied again, so
+ * the player only sees a correction if the guess was wrong.
+ *
+ * @author Dillon - Github dg092099
+ * @since V2.2.2
+ */
+public class PredictionClient {
+	static final int MAX_PENDING = 256; // Inputs kept waiting for the server.
+	private static Entity player; // The predicted entity.
+	private static double inputX, inputY; // The direction to send.
+	private static int jumpHeight = 0; // A jump to send with the next input.
+	private static int seq = 0; // The number of the last input.
+	private static final ArrayDeque<double[]> pending = new ArrayDeque<double[]>(); // Inputs
+	// the server hasn't used yet.
+	private static final AtomicReference<String> latest = new AtomicReference<String>(); // The
+	// newest state from the server, not applied yet.
+	private static volatile int replicatedId = -1; // The player's id in EntityReplicator.
+	private static EEHandler<UpdateEvent> updateHandler;
+	private static EEHandler<NetworkEvent> networkHandler;
+	private static long corrections = 0;
+	private static double lastError = 0; // How far off the last correction was.
+
+	private PredictionClient() {
+	}
+
+	/**
+	 * Starts predicting an entity.
+	 *
+	 * @param e
+	 *            The player's entity, which the server gave this client with
+	 *            PredictionServer.setOwner.
+	 * @param k
+	 *            The security key.
+	 */
+	public static synchronized void start(Entity e, SecurityKey k) {
+		SecuritySystem.checkPermission(k, RequestedAction.CONNECT);
+		if (e == null) {
+			throw new IllegalArgumentException("The entity must not be null.");
+		}
+		player = e;
+		if (updateHandler != null) {
+			return;
+		}
+		EventSystem.addHandler(updateHandler = new EEHandler<UpdateEvent>() {
+			@Override
+			public void handle(UpdateEvent evt) {
+				update();
+			}
+
+			@Override
+			public int getPriority() {
+				return Integer.MIN_VALUE; // Before the entities move.
+			}
+		}, k);
+		EventSystem.addHandler(networkHandler = new EEHandler<NetworkEvent>() {
+			@Override
+			public void handle(NetworkEvent evt) {
+				if (evt.getConnector() == null && evt.getMode() == NetworkEvent.NetworkMode.MESSAGE
+						&& PredictionServer.CHANNEL.equals(evt.getMessage().getOriginator())) {
+					latest.set(evt.getMessage().getMessage());
+				}
+			}
+
+			@Override
+			public int getPriority() {
+				return 0;
+			}
+		}, k);
+	}
+
+	/**
+	 * Stops predicting.
+	 *
+	 * @param k
+	 *            The security key.
+	 */
+	public static synchronized void stop(SecurityKey k) {
+		SecuritySystem.checkPermission(k, RequestedAction.DISCONNECT);
+		if (updateHandler == null) {
+			return;
+		}
+		EventSystem.removeHandler(updateHandler);
+		EventSystem.removeHandler(networkHandler);
+		updateHandler = null;
+		networkHandler = null;
+		pending.clear();
+		latest.set(null);
+		replicatedId = -1;
+	}
+
+	/**
+	 * Sets how far an input can move the player, which must be the same as the
+	 * server's PredictionServer.setLimits or every input would be corrected.
+	 *
+	 * @param speed
+	 *            The maximum speed, in pixels per update.
+	 * @param jump
+	 *            The maximum jump height.
+	 * @param k
+	 *            The security key.
+	 */
+	public static void setLimits(double speed, int jump, SecurityKey k) {
+		SecuritySystem.checkPermission(k, RequestedAction.CONNECT);
+		PredictionServer.limit(speed, jump);
+	}
+
+	/**
+	 * Sets the direction the player wants to move in. It is sent every update
+	 * until changed, and is slowed to the speed limit when it is applied.
+	 *
+	 * @param dx
+	 *            The x direction.
+	 * @param dy
+	 *            The y direction.
+	 */
+	public static synchronized void setInput(double dx, double dy) {
+		inputX = dx;
+		inputY = dy;
+	}
+
+	/**
+	 * Makes the player jump on the next update.
+	 *
+	 * @param height
+	 *            How high.
+	 */
+	public static synchronized void jump(int height) {
+		if (height <= 0) {
+			throw new IllegalArgumentException("The jump height must be positive.");
+		}
+		jumpHeight = height;
+	}
+
+	/**
+	 * Gets the predicted entity.
+	 *
+	 * @return The entity, or null if not predicting.
+	 */
+	public static synchronized Entity getPlayer() {
+		return updateHandler != null ? player : null;
+	}
+
+	/**
+	 * Gets the id the server replicates the player's entity with, which
+	 * ReplicationClient leaves alone.
+	 *
+	 * @return The id, or -1 if it isn't known yet.
+	 */
+	static int getReplicatedId() {
+		return replicatedId;
+	}
+
+	/**
+	 * Gets how many inputs the server hasn't used yet.
+	 *
+	 * @return The amount.
+	 */
+	public static synchronized int getPendingInputs() {
+		return pending.size();
+	}
+
+	/**
+	 * Fixes the prediction with the newest state, then sends and applies this
+	 * update's input.
+	 */
+	private static synchronized void update() {
+		String state = latest.getAndSet(null);
+		if (state != null) {
+			reconcile(state);
+		}
+		seq++;
+		double[] input = { seq, inputX, inputY, jumpHeight };
+		jumpHeight = 0;
+		pending.add(input);
+		while (pending.size() > MAX_PENDING) {
+			pending.poll();
+		}
+		NetworkConnection.sendMessage(new Message("INPUT:" + seq + ":" + input[1] + ":" + input[2] + ":"
+				+ (int) input[3], PredictionServer.CHANNEL));
+		PredictionServer.apply(player, input);
+	}
+
+	/**
+	 * Puts the entity where the server says, then replays the inputs the server
+	 * hadn't used.
+	 *
+	 * @param text
+	 *            The state message.
+	 */
+	private static void reconcile(String text) {
+		String[] parts = text.split(":");
+		if (parts.length != 11 || !parts[0].equals("STATE")) {
+			return;
+		}
+		double[] server = new double[8];
+		int acked;
+		try {
+			acked = Integer.parseInt(parts[1]);
+			replicatedId = Integer.parseInt(parts[2]);
+			for (int i = 0; i < server.length; i++) {
+				server[i] = Double.parseDouble(parts[i + 3]);
+			}
+		} catch (NumberFormatException e) {
+			return;
+		}
+		while (!pending.isEmpty() && pending.peek()[0] <= acked) {
+			pending.poll();
+		}
+		double[] before = player.getMotionState();
+		player.setMotionState(server);
+		for (double[] input : pending) {
+			PredictionServer.apply(player, input);
+			player.step();
+		}
+		double[] after = player.getMotionState();
+		double error = Math.hypot(after[0] - before[0], after[1] - before[1]);
+		if (error > 0.01) {
+			corrections++;
+			lastError = error;
+		}
+	}
+
+	public static synchronized String getDebug() {
+		String data = "\n\ndillon.gameAPI.networking.PredictionClient Debug:\n";
+		data += String.format("%-15s %-7s\n", "Key", "Value");
+		data += String.format("%-15s %-7s\n", "---", "-----");
+		data += String.format("%-15s %-7s\n", "Running:", updateHandler != null ? "Yes" : "No");
+		data += String.format("%-15s %-7d\n", "Input:", seq);
+		data += String.format("%-15s %-7d\n", "Pending:", pending.size());
+		data += String.format("%-15s %-7d\n", "Corrections:", corrections);
+		data += String.format("%-15s %-7.2f\n", "Last Error:", lastError);
+		return data;
+	}
+}
@@ -0,0 +1,295 @@
+package dillon.gameAPI.networking;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import dillon.gameAPI.entity.Entity;
+import dillon.gameAPI.event.EEHandler;
+import dillon.gameAPI.event.EventSystem;
+import dillon.gameAPI.event.NetworkEvent;
+import dillon.gameAPI.event.UpdateEvent;
+import dillon.gameAPI.security.RequestedAction;
+import dillon.gameAPI.security.SecurityKey;
+import dillon.gameAPI.security.SecuritySystem;
+
+/**
+ * The server half of client side prediction. Each client controls one entity
+ * by sending numbered inputs, one per update. The server applies one input per
+ * update to the entity, lets it move, and sends the owner where it ended up
+ * and the number of the last input used. PredictionClient uses that to fix its
+ * own guess. Inputs are limited to a maximum speed and jump height, which the
+ * server and its clients must be given the same.
+ *
+ * @author Dillon - Github dg092099
+ * @since V2.2.2
+ */
+public class PredictionServer {
+	static final String CHANNEL = "Prediction"; // The originator of prediction messages.
+	static final int MAX_BUFFERED = 32; // Inputs kept per client, older ones are dropped.
+	private static final ConcurrentHashMap<ClientConnector, Owner> owners = new ConcurrentHashMap<ClientConnector, Owner>();
+	private static EEHandler<UpdateEvent> inputHandler, stateHandler;
+	private static EEHandler<NetworkEvent> networkHandler;
+	private static long inputs = 0, dropped = 0;
+	private static volatile double maxSpeed = 10; // The fastest an input can move an entity.
+	private static volatile int maxJump = 128; // The highest an input can make an entity jump.
+
+	/**
+	 * A client and the entity it controls.
+	 */
+	private static class Owner {
+		final Entity entity;
+		final ConcurrentLinkedQueue<double[]> queue = new ConcurrentLinkedQueue<double[]>(); // Inputs
+		// not applied yet, as sequence, x direction, y direction and jump.
+		int lastSeq = 0; // The last input applied.
+		int sentSeq = -1; // The last input reported to the client.
+		double[] sentState; // The state last reported.
+
+		Owner(Entity entity) {
+			this.entity = entity;
+		}
+	}
+
+	private PredictionServer() {
+	}
+
+	/**
+	 * Starts taking inputs from clients.
+	 *
+	 * @param k
+	 *            The security key.
+	 */
+	public static synchronized void start(SecurityKey k) {
+		SecuritySystem.checkPermission(k, RequestedAction.START_NET_SERVER);
+		if (inputHandler != null) {
+			return;
+		}
+		EventSystem.addHandler(inputHandler = new EEHandler<UpdateEvent>() {
+			@Override
+			public void handle(UpdateEvent evt) {
+				applyInputs();
+			}
+
+			@Override
+			public int getPriority() {
+				return Integer.MIN_VALUE; // Before the entities move.
+			}
+		}, k);
+		EventSystem.addHandler(stateHandler = new EEHandler<UpdateEvent>() {
+			@Override
+			public void handle(UpdateEvent evt) {
+				sendStates();
+			}
+
+			@Override
+			public int getPriority() {
+				return Integer.MAX_VALUE; // After the entities move.
+			}
+		}, k);
+		EventSystem.addHandler(networkHandler = new EEHandler<NetworkEvent>() {
+			@Override
+			public void handle(NetworkEvent evt) {
+				ClientConnector cc = evt.getConnector();
+				if (cc == null) {
+					return;
+				}
+				if (evt.getMode() == NetworkEvent.NetworkMode.DISCONNECT) {
+					owners.remove(cc);
+				} else if (evt.getMode() == NetworkEvent.NetworkMode.MESSAGE
+						&& CHANNEL.equals(evt.getMessage().getOriginator())) {
+					received(cc, evt.getMessage().getMessage());
+				}
+			}
+
+			@Override
+			public int getPriority() {
+				return 0;
+			}
+		}, k);
+	}
+
+	/**
+	 * Stops taking inputs.
+	 *
+	 * @param k
+	 *            The security key.
+	 */
+	public static synchronized void stop(SecurityKey k) {
+		SecuritySystem.checkPermission(k, RequestedAction.STOP_NET_SERVER);
+		if (inputHandler == null) {
+			return;
+		}
+		EventSystem.removeHandler(inputHandler);
+		EventSystem.removeHandler(stateHandler);
+		EventSystem.removeHandler(networkHandler);
+		inputHandler = null;
+		stateHandler = null;
+		networkHandler = null;
+		owners.clear();
+	}
+
+	/**
+	 * Sets how far an input can move its entity. Faster directions are slowed
+	 * to the maximum speed and higher jumps are lowered to the maximum height.
+	 * PredictionClient.setLimits must be given the same limits.
+	 *
+	 * @param speed
+	 *            The maximum speed, in pixels per update.
+	 * @param jump
+	 *            The maximum jump height.
+	 * @param k
+	 *            The security key.
+	 */
+	public static void setLimits(double speed, int jump, SecurityKey k) {
+		SecuritySystem.checkPermission(k, RequestedAction.START_NET_SERVER);
+		limit(speed, jump);
+	}
+
+	/**
+	 * Sets the limits for both the server and the client.
+	 *
+	 * @param speed
+	 *            The maximum speed.
+	 * @param jump
+	 *            The maximum jump height.
+	 */
+	static synchronized void limit(double speed, int jump) {
+		if (!(speed > 0) || Double.isInfinite(speed)) {
+			throw new IllegalArgumentException("The maximum speed must be positive.");
+		}
+		if (jump < 0) {
+			throw new IllegalArgumentException("The maximum jump height must not be negative.");
+		}
+		maxSpeed = speed;
+		maxJump = jump;
+	}
+
+	/**
+	 * Gives a client control of an entity.
+	 *
+	 * @param cc
+	 *            The client.
+	 * @param e
+	 *            The entity.
+	 */
+	public static void setOwner(ClientConnector cc, Entity e) {
+		if (cc == null || e == null) {
+			throw new IllegalArgumentException("The client and entity must not be null.");
+		}
+		owners.put(cc, new Owner(e));
+	}
+
+	/**
+	 * Takes control away from a client.
+	 *
+	 * @param cc
+	 *            The client.
+	 */
+	public static void removeOwner(ClientConnector cc) {
+		owners.remove(cc);
+	}
+
+	/**
+	 * Queues an input from a client. Inputs are "INPUT:sequence:x direction:y
+	 * direction:jump height".
+	 *
+	 * @param cc
+	 *            The client.
+	 * @param text
+	 *            The message.
+	 */
+	private static void received(ClientConnector cc, String text) {
+		Owner o = owners.get(cc);
+		if (o == null || !text.startsWith("INPUT:")) {
+			return;
+		}
+		String[] parts = text.split(":");
+		if (parts.length != 5) {
+			return;
+		}
+		try {
+			double[] input = { Integer.parseInt(parts[1]), Double.parseDouble(parts[2]), Double.parseDouble(parts[3]),
+					Integer.parseInt(parts[4]) };
+			if (Double.isNaN(input[1]) || Double.isNaN(input[2]) || Double.isInfinite(input[1])
+					|| Double.isInfinite(input[2])) {
+				return;
+			}
+			o.queue.add(input);
+		} catch (NumberFormatException e) {
+		}
+	}
+
+	/**
+	 * Applies one input to each controlled entity.
+	 */
+	private static void applyInputs() {
+		for (Owner o : owners.values()) {
+			while (o.queue.size() > MAX_BUFFERED) { // Too far behind, catch up.
+				o.queue.poll();
+				dropped++;
+			}
+			double[] input = o.queue.poll();
+			if (input == null) {
+				continue; // Nothing new, the entity keeps its last input.
+			}
+			apply(o.entity, input);
+			o.lastSeq = (int) input[0];
+			inputs++;
+		}
+	}
+
+	/**
+	 * Applies an input to an entity, held to the limits. The client uses this
+	 * too, so that both move the entity the same way.
+	 *
+	 * @param e
+	 *            The entity.
+	 * @param input
+	 *            The sequence, x direction, y direction and jump height.
+	 */
+	static void apply(Entity e, double[] input) {
+		double dx = input[1], dy = input[2];
+		double speed = Math.hypot(dx, dy);
+		double max = maxSpeed;
+		if (speed > max) {
+			dx = dx / speed * max;
+			dy = dy / speed * max;
+		}
+		e.setDirection(dx, dy);
+		if (input[3] > 0) {
+			e.jump((int) Math.min(input[3], maxJump));
+		}
+	}
+
+	/**
+	 * Tells each owner where its entity is, if that changed. States are
+	 * "STATE:last input:replicated id:motion state...".
+	 */
+	private static void sendStates() {
+		for (java.util.Map.Entry<ClientConnector, Owner> en : owners.entrySet()) {
+			Owner o = en.getValue();
+			double[] state = o.entity.getMotionState();
+			if (o.lastSeq == o.sentSeq && java.util.Arrays.equals(state, o.sentState)) {
+				continue;
+			}
+			StringBuilder sb = new StringBuilder("STATE:");
+			sb.append(o.lastSeq).append(':').append(EntityReplicator.getId(o.entity));
+			for (double d : state) {
+				sb.append(':').append(d);
+			}
+			en.getKey().send(new Message(sb.toString(), CHANNEL));
+			o.sentSeq = o.lastSeq;
+			o.sentState = state;
+		}
+	}
+
+	public static String getDebug() {
+		String data = "\n\ndillon.gameAPI.networking.PredictionServer Debug:\n";
+		data += String.format("%-15s %-7s\n", "Key", "Value");
+		data += String.format("%-15s %-7s\n", "---", "-----");
+		data += String.format("%-15s %-7s\n", "Running:", inputHandler != null ? "Yes" : "No");
+		data += String.format("%-15s %-7d\n", "Owners:", owners.size());
+		data += String.format("%-15s %-7d\n", "Inputs:", inputs);
+		data += String.format("%-15s %-7d\n", "Dropped:", dropped);
+		return data;
+	}
+}
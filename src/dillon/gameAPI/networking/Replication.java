@@ -0,0 +1,160 @@
+package dillon.gameAPI.networking;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import dillon.gameAPI.entity.Entity;
+
+/**
+ * The format shared by EntityReplicator and ReplicationClient. A snapshot is
+ * sent as a message from CHANNEL, holding Base64 of:
+ * <ul>
+ * <li>A byte, KEYFRAME or DELTA.</li>
+ * <li>The snapshot number as a varint.</li>
+ * <li>For a delta, the number of the snapshot it is against, as a varint.</li>
+ * <li>The number of entity records as a varint.</li>
+ * <li>Each record: the entity id as a varint, a byte of flags, the entity type
+ * as a string if SPAWN is set, then each changed field as a zigzag varint.</li>
+ * </ul>
+ * Fields are quantized to ints first. In a keyframe they are the values, in a
+ * delta they are the change from the snapshot the delta is against. The
+ * client answers each snapshot with "ACK:number", or "NACK" if it doesn't
+ * have the snapshot a delta was against.
+ *
+ * @author Dillon - Github dg092099
+ * @since V2.2.2
+ */
+final class Replication {
+	static final String CHANNEL = "Replication"; // The originator of replication messages.
+	static final int KEYFRAME = 1, DELTA = 2; // Snapshot types.
+	static final int X = 0, Y = 1, DX = 2, DY = 3, HEALTH = 4, FRAME = 5, FIELDS = 6; // Field
+	// indexes, also their flag bits.
+	static final int SPAWN = 1 << 6; // The record has the entity type.
+	static final int REMOVE = 1 << 7; // The entity is gone.
+	static final double POSITION_SCALE = 16; // Positions are kept to 1/16 of a pixel.
+	static final double VELOCITY_SCALE = 256; // Velocities to 1/256 of a pixel an update.
+	static final double HEALTH_SCALE = 16;
+	static final int HISTORY = 64; // How many snapshots each side keeps.
+
+	private Replication() {
+	}
+
+	/**
+	 * Reads an entity's fields, quantized.
+	 *
+	 * @param e
+	 *            The entity.
+	 * @param into
+	 *            Where to put them, FIELDS long.
+	 */
+	static void capture(Entity e, int[] into) {
+		into[X] = quantize(e.getX(), POSITION_SCALE);
+		into[Y] = quantize(e.getY(), POSITION_SCALE);
+		into[DX] = quantize(e.getVelocityX(), VELOCITY_SCALE);
+		into[DY] = quantize(e.getVelocityY(), VELOCITY_SCALE);
+		Double health = e.getHealth();
+		into[HEALTH] = quantize(health != null ? health : 0, HEALTH_SCALE);
+		into[FRAME] = e.getFrame();
+	}
+
+	/**
+	 * Sets the fields flagged in the mask on an entity.
+	 *
+	 * @param e
+	 *            The entity.
+	 * @param v
+	 *            The quantized fields.
+	 * @param mask
+	 *            The fields to set.
+	 */
+	static void apply(Entity e, int[] v, int mask) {
+		if ((mask & (1 << X | 1 << Y)) != 0) {
+			e.setPosition(v[X] / POSITION_SCALE, v[Y] / POSITION_SCALE);
+		}
+		if ((mask & (1 << DX | 1 << DY)) != 0) {
+			e.setDirection(v[DX] / VELOCITY_SCALE, v[DY] / VELOCITY_SCALE);
+		}
+		if ((mask & 1 << HEALTH) != 0) {
+			e.setHealth(v[HEALTH] / HEALTH_SCALE);
+		}
+		if ((mask & 1 << FRAME) != 0 && v[FRAME] >= 0) {
+			try {
+				e.setFrame(v[FRAME]);
+			} catch (IllegalArgumentException ex) {
+				// The client's sprites differ from the server's, keep its frame.
+			}
+		}
+	}
+
+	static int quantize(double value, double scale) {
+		return (int) Math.round(value * scale);
+	}
+
+	static void writeSigned(ByteArrayOutputStream out, int value) {
+		writeUnsigned(out, (value << 1) ^ (value >> 31));
+	}
+
+	static int readSigned(ByteBuffer in) throws IOException {
+		int v = BinaryCodec.readVarintBits(in);
+		return (v >>> 1) ^ -(v & 1);
+	}
+
+	static void writeUnsigned(ByteArrayOutputStream out, int value) {
+		while ((value & ~0x7F) != 0) {
+			out.write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.write(value);
+	}
+
+	static int readUnsigned(ByteBuffer in) throws IOException {
+		return BinaryCodec.readVarint(in);
+	}
+
+	static void writeString(ByteArrayOutputStream out, String s) {
+		byte[] b = s.getBytes(StandardCharsets.UTF_8);
+		writeUnsigned(out, b.length);
+		out.write(b, 0, b.length);
+	}
+
+	static String readString(ByteBuffer in) throws IOException {
+		int length = readUnsigned(in);
+		if (length > in.remaining()) {
+			throw new IOException("The text is longer than the snapshot.");
+		}
+		byte[] b = new byte[length];
+		in.get(b);
+		return new String(b, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Wraps encoded snapshot bytes in a message.
+	 *
+	 * @param bytes
+	 *            The snapshot.
+	 * @return The message.
+	 */
+	static Message wrap(ByteArrayOutputStream bytes) {
+		return new Message(Base64.getEncoder().encodeToString(bytes.toByteArray()), CHANNEL);
+	}
+
+	/**
+	 * Gets the snapshot bytes from a message.
+	 *
+	 * @param msg
+	 *            The message.
+	 * @return The snapshot.
+	 * @throws IOException
+	 *             If it isn't Base64.
+	 */
+	static ByteBuffer unwrap(Message msg) throws IOException {
+		try {
+			return ByteBuffer.wrap(Base64.getDecoder().decode(msg.getMessage()));
+		} catch (IllegalArgumentException e) {
+			throw new IOException("The snapshot is broken.", e);
+		}
+	}
+}
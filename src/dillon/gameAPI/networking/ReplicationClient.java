@@ -0,0 +1,270 @@
+package dillon.gameAPI.networking;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import dillon.gameAPI.entity.Entity;
+import dillon.gameAPI.event.EEHandler;
+import dillon.gameAPI.event.EventSystem;
+import dillon.gameAPI.event.NetworkEvent;
+import dillon.gameAPI.event.UpdateEvent;
+import dillon.gameAPI.security.RequestedAction;
+import dillon.gameAPI.security.SecurityKey;
+import dillon.gameAPI.security.SecuritySystem;
+
+/**
+ * Receives the snapshots sent by EntityReplicator and keeps local copies of
+ * the server's entities. Snapshots are applied at the start of each update, on
+ * the update thread, and each one is acknowledged so the server knows what the
+ * next delta can be against.
+ *
+ * @author Dillon - Github dg092099
+ * @since V2.2.2
+ */
+public class ReplicationClient {
+	private static final ConcurrentLinkedQueue<Message> inbox = new ConcurrentLinkedQueue<Message>(); // Snapshots
+	// waiting for the next update.
+	private static final LinkedHashMap<Integer, HashMap<Integer, int[]>> received = new LinkedHashMap<Integer, HashMap<Integer, int[]>>(); // Snapshots
+	// by number, oldest first.
+	private static final HashMap<Integer, Entity> replicas = new HashMap<Integer, Entity>(); // Local
+	// copies by network id.
+	private static replicaFactory factory;
+	private static EEHandler<UpdateEvent> updateHandler;
+	private static EEHandler<NetworkEvent> networkHandler;
+	private static long applied = 0, rejected = 0;
+
+	/**
+	 * Makes and removes the local copies of entities.
+	 *
+	 * @author Dillon - Github dg092099
+	 * @since V2.2.2
+	 */
+	public static interface replicaFactory {
+		/**
+		 * Makes the local copy of an entity.
+		 *
+		 * @param id
+		 *            The network id.
+		 * @param type
+		 *            The entity's type on the server.
+		 * @return The entity, or null to not copy it.
+		 */
+		public Entity create(int id, String type);
+
+		/**
+		 * Removes the local copy of an entity that the server removed.
+		 *
+		 * @param id
+		 *            The network id.
+		 * @param e
+		 *            The entity.
+		 */
+		public void remove(int id, Entity e);
+	}
+
+	private ReplicationClient() {
+	}
+
+	/**
+	 * Starts receiving snapshots from the server.
+	 *
+	 * @param f
+	 *            Makes and removes the local copies.
+	 * @param k
+	 *            The security key.
+	 */
+	public static synchronized void start(replicaFactory f, SecurityKey k) {
+		SecuritySystem.checkPermission(k, RequestedAction.CONNECT);
+		if (f == null) {
+			throw new IllegalArgumentException("The factory must not be null.");
+		}
+		factory = f;
+		if (updateHandler != null) {
+			return;
+		}
+		EventSystem.addHandler(updateHandler = new EEHandler<UpdateEvent>() {
+			@Override
+			public void handle(UpdateEvent evt) {
+				applyAll();
+			}
+
+			@Override
+			public int getPriority() {
+				return Integer.MIN_VALUE; // Before the entities move.
+			}
+		}, k);
+		EventSystem.addHandler(networkHandler = new EEHandler<NetworkEvent>() {
+			@Override
+			public void handle(NetworkEvent evt) {
+				if (evt.getConnector() == null && evt.getMode() == NetworkEvent.NetworkMode.MESSAGE
+						&& Replication.CHANNEL.equals(evt.getMessage().getOriginator())) {
+					inbox.add(evt.getMessage());
+				}
+			}
+
+			@Override
+			public int getPriority() {
+				return 0;
+			}
+		}, k);
+	}
+
+	/**
+	 * Stops receiving snapshots. The local copies are removed.
+	 *
+	 * @param k
+	 *            The security key.
+	 */
+	public static synchronized void stop(SecurityKey k) {
+		SecuritySystem.checkPermission(k, RequestedAction.DISCONNECT);
+		if (updateHandler == null) {
+			return;
+		}
+		EventSystem.removeHandler(updateHandler);
+		EventSystem.removeHandler(networkHandler);
+		updateHandler = null;
+		networkHandler = null;
+		inbox.clear();
+		received.clear();
+		for (java.util.Map.Entry<Integer, Entity> en : replicas.entrySet()) {
+			factory.remove(en.getKey(), en.getValue());
+		}
+		replicas.clear();
+	}
+
+	/**
+	 * Gets the local copy of an entity.
+	 *
+	 * @param id
+	 *            The network id.
+	 * @return The entity, or null if there isn't one.
+	 */
+	public static synchronized Entity getReplica(int id) {
+		return replicas.get(id);
+	}
+
+	/**
+	 * Applies every snapshot that arrived since the last update.
+	 */
+	private static synchronized void applyAll() {
+		Message msg;
+		while ((msg = inbox.poll()) != null) {
+			try {
+				apply(Replication.unwrap(msg));
+				applied++;
+			} catch (IOException | BufferUnderflowException e) {
+				rejected++;
+				NetworkConnection.sendMessage(new Message("NACK", Replication.CHANNEL));
+			}
+		}
+	}
+
+	/**
+	 * Applies one snapshot and acknowledges it.
+	 *
+	 * @param in
+	 *            The snapshot.
+	 * @throws IOException
+	 *             If it is broken.
+	 */
+	private static void apply(ByteBuffer in) throws IOException {
+		int type = in.get();
+		int seq = Replication.readUnsigned(in);
+		HashMap<Integer, int[]> state;
+		if (type == Replication.KEYFRAME) {
+			state = new HashMap<Integer, int[]>();
+		} else if (type == Replication.DELTA) {
+			HashMap<Integer, int[]> base = received.get(Replication.readUnsigned(in));
+			if (base == null) {
+				throw new IOException("The snapshot the delta is against is gone.");
+			}
+			state = new HashMap<Integer, int[]>(base.size() * 2);
+			for (java.util.Map.Entry<Integer, int[]> en : base.entrySet()) {
+				state.put(en.getKey(), en.getValue().clone());
+			}
+		} else {
+			throw new IOException("Unknown snapshot type: " + type);
+		}
+		int records = Replication.readUnsigned(in);
+		HashMap<Integer, Integer> changed = new HashMap<Integer, Integer>(records * 2); // Masks
+		// by id.
+		HashMap<Integer, String> spawned = new HashMap<Integer, String>();
+		for (int r = 0; r < records; r++) {
+			int id = Replication.readUnsigned(in);
+			int mask = in.get() & 0xFF;
+			if ((mask & Replication.REMOVE) != 0) {
+				state.remove(id);
+				continue;
+			}
+			if ((mask & Replication.SPAWN) != 0) {
+				spawned.put(id, Replication.readString(in));
+			}
+			int[] v = state.get(id);
+			if (v == null || (mask & Replication.SPAWN) != 0 && type == Replication.KEYFRAME) {
+				v = new int[Replication.FIELDS];
+				state.put(id, v);
+			}
+			for (int f = 0; f < Replication.FIELDS; f++) {
+				if ((mask & 1 << f) != 0) {
+					v[f] += Replication.readSigned(in);
+				}
+			}
+			changed.put(id, mask);
+		}
+		received.put(seq, state);
+		Iterator<Integer> old = received.keySet().iterator();
+		while (received.size() > Replication.HISTORY) {
+			old.next();
+			old.remove();
+		}
+		// Bring the local copies in line.
+		Iterator<java.util.Map.Entry<Integer, Entity>> it = replicas.entrySet().iterator();
+		while (it.hasNext()) {
+			java.util.Map.Entry<Integer, Entity> en = it.next();
+			if (!state.containsKey(en.getKey())) {
+				factory.remove(en.getKey(), en.getValue());
+				it.remove();
+			}
+		}
+		int predicted = PredictionClient.getReplicatedId(); // The player's own entity, moved by
+		// PredictionClient instead.
+		Entity own = replicas.remove(predicted);
+		if (own != null) {
+			factory.remove(predicted, own);
+		}
+		for (java.util.Map.Entry<Integer, Integer> en : changed.entrySet()) {
+			int id = en.getKey();
+			if (id == predicted) {
+				continue;
+			}
+			Entity e = replicas.get(id);
+			int mask = en.getValue();
+			if (e == null) {
+				e = factory.create(id, spawned.containsKey(id) ? spawned.get(id) : "");
+				if (e == null) {
+					continue;
+				}
+				replicas.put(id, e);
+				mask |= (1 << Replication.FIELDS) - 1;
+			}
+			Replication.apply(e, state.get(id), mask);
+		}
+		NetworkConnection.sendMessage(new Message("ACK:" + seq, Replication.CHANNEL));
+	}
+
+	public static synchronized String getDebug() {
+		String data = "\n\ndillon.gameAPI.networking.ReplicationClient Debug:\n";
+		data += String.format("%-15s %-7s\n", "Key", "Value");
+		data += String.format("%-15s %-7s\n", "---", "-----");
+		data += String.format("%-15s %-7s\n", "Running:", updateHandler != null ? "Yes" : "No");
+		data += String.format("%-15s %-7d\n", "Replicas:", replicas.size());
+		data += String.format("%-15s %-7d\n", "Applied:", applied);
+		data += String.format("%-15s %-7d\n", "Rejected:", rejected);
+		return data;
+	}
+}
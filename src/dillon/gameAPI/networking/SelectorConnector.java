@@ -0,0 +1,246 @@
+package dillon.gameAPI.networking;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import dillon.gameAPI.security.SecurityKey;
+
+/**
+ * A client connector for the selector engine. It has no thread of its own:
+ * reads and writes are done by the IO thread it belongs to when the channel is
+ * ready.
+ *
+ * @author Dillon - Github dg092099
+ * @since V2.2.2
+ */
+class SelectorConnector extends ClientConnector {
+	private static final int BUFFER_SIZE = 8192; // The starting read buffer size.
+	private final SocketChannel channel; // The client channel.
+	private final SelectorServer.ioLoop loop; // The IO thread that handles it.
+	private final String ip; // The remote address, kept after closing.
+	private SelectionKey selectionKey; // The channel's key in the loop's selector.
+	private ByteBuffer in = ByteBuffer.allocate(BUFFER_SIZE); // Bytes read but
+	// not handled yet.
+	private final ConcurrentLinkedQueue<ByteBuffer[]> out = new ConcurrentLinkedQueue<ByteBuffer[]>(); // Batches
+	// handed to the IO thread to write.
+	private final AtomicBoolean writeRequested = new AtomicBoolean(false); // If
+	// the loop has been asked to write.
+	private volatile boolean closing = false; // Close once everything is written.
+	private volatile boolean closed = false;
+
+	/**
+	 * Creates a connector.
+	 *
+	 * @param channel
+	 *            The client channel.
+	 * @param loop
+	 *            The IO thread to use.
+	 * @param k
+	 *            The security key.
+	 */
+	SelectorConnector(SocketChannel channel, SelectorServer.ioLoop loop, SecurityKey k) {
+		super(k);
+		this.channel = channel;
+		this.loop = loop;
+		String address;
+		try {
+			address = channel.getRemoteAddress().toString();
+		} catch (IOException e) {
+			address = "Unknown";
+		}
+		ip = address;
+	}
+
+	SocketChannel getChannel() {
+		return channel;
+	}
+
+	void setSelectionKey(SelectionKey k) {
+		selectionKey = k;
+	}
+
+	boolean hasSelectionKey() {
+		return selectionKey != null;
+	}
+
+	@Override
+	public String getIP() {
+		return ip;
+	}
+
+	/**
+	 * Sends the shutdown message, then closes the connection once it is written.
+	 */
+	@Override
+	public void shutdown() {
+		if (closed || closing) {
+			return;
+		}
+		synchronized (this) {
+			flush();
+			try {
+				ByteBuffer frame = Frames.encode(new Message("SHUTDOWN", "Server"), codec);
+				queue.count(frame);
+				out.add(new ByteBuffer[] { frame });
+			} catch (IOException e) {
+			}
+			closing = true;
+		}
+		loop.requestWrite(this);
+	}
+
+	@Override
+	synchronized void sendFrame(ByteBuffer frame) {
+		if (closed || closing) {
+			return;
+		}
+		frame = frame.asReadOnlyBuffer(); // Its position moves as it is written, and
+		// broadcasts share the frame with other clients.
+		if (NetworkServer.isBatching()) {
+			if (queue.add(frame, NetworkServer.getMaxBatchBytes())) {
+				flush();
+			} else {
+				SendQueue.startTimer();
+			}
+			return;
+		}
+		flush();
+		queue.count(frame);
+		hand(new ByteBuffer[] { frame });
+	}
+
+	/**
+	 * Hands every queued message to the IO thread to be written in one go.
+	 */
+	@Override
+	public synchronized void flush() {
+		if (closed || closing) {
+			return;
+		}
+		ByteBuffer[] batch = queue.drain();
+		if (batch.length > 0) {
+			hand(batch);
+		}
+	}
+
+	/**
+	 * Gives a batch to the IO thread.
+	 *
+	 * @param batch
+	 *            The frames.
+	 */
+	private void hand(ByteBuffer[] batch) {
+		out.add(batch);
+		if (writeRequested.compareAndSet(false, true)) {
+			loop.requestWrite(this);
+		}
+	}
+
+	/**
+	 * Reads what has arrived and handles every whole frame. Called by the IO
+	 * thread.
+	 */
+	void read() {
+		try {
+			if (channel.read(in) < 0) {
+				close();
+				return;
+			}
+			in.flip();
+			while (in.remaining() >= Frames.HEADER) {
+				int length = in.getInt(in.position());
+				Frames.checkLength(length);
+				if (in.remaining() < Frames.HEADER + length) {
+					if (in.capacity() < Frames.HEADER + length) { // Make room for it.
+						ByteBuffer bigger = ByteBuffer.allocate(Frames.HEADER + length);
+						bigger.put(in);
+						bigger.flip();
+						in = bigger;
+					}
+					break;
+				}
+				ByteBuffer body = in.slice();
+				body.position(Frames.HEADER);
+				body.limit(Frames.HEADER + length);
+				in.position(in.position() + Frames.HEADER + length);
+				received(Frames.decode(body, codec));
+				if (closed || closing) {
+					return;
+				}
+			}
+			in.compact();
+		} catch (IOException e) {
+			close();
+		}
+	}
+
+	/**
+	 * Writes as much as the channel takes. Each batch is written with one
+	 * gathering write. Called by the IO thread.
+	 */
+	void write() {
+		try {
+			ByteBuffer[] b;
+			while ((b = out.peek()) != null) {
+				channel.write(b);
+				if (b[b.length - 1].hasRemaining()) {
+					selectionKey.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+					return; // The channel is full, wait until it is writable.
+				}
+				out.poll();
+			}
+			if (closing) {
+				close();
+				return;
+			}
+			selectionKey.interestOps(SelectionKey.OP_READ);
+			writeRequested.set(false);
+			// A frame may have been added after the queue was found empty.
+			if (!out.isEmpty() && writeRequested.compareAndSet(false, true)) {
+				selectionKey.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+			}
+		} catch (IOException e) {
+			close();
+		}
+	}
+
+	/**
+	 * Closes the channel and sends the disconnect event.
+	 */
+	void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		out.clear();
+		if (selectionKey != null) {
+			selectionKey.cancel();
+		}
+		try {
+			channel.close();
+		} catch (IOException e) {
+		}
+		disconnected();
+	}
+
+	@Override
+	public String getDebug(String input) {
+		input += "dillon.gameAPI.networking.ClientConnector debug:\n";
+		input += String.format("%-13s %-5s\n", "Key", "Value");
+		input += String.format("%-13s %-5s\n", "---", "-----");
+		input += String.format("%-13s %-5s\n", "IP:", ip);
+		int port = 0;
+		try {
+			port = ((InetSocketAddress) channel.getRemoteAddress()).getPort();
+		} catch (IOException | ClassCastException | NullPointerException e) {
+		}
+		input += String.format("%-13s %-5d\n", "Remote Port:", port);
+		input += String.format("%-13s %-5d\n", "Handed Over:", out.size());
+		return queue.getDebug(input);
+	}
+}
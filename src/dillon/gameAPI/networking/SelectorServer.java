@@ -0,0 +1,202 @@
+package dillon.gameAPI.networking;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.logging.Logger;
+
+import dillon.gameAPI.event.EventSystem;
+import dillon.gameAPI.event.NetworkEvent;
+import dillon.gameAPI.security.SecurityKey;
+
+/**
+ * The selector server engine. One thread accepts clients and hands them to a
+ * small, fixed set of IO threads, each of which watches all of its clients with
+ * one selector. This uses a few threads however many clients there are, where
+ * the blocking engine uses one per client.
+ *
+ * @author Dillon - Github dg092099
+ * @since V2.2.2
+ */
+class SelectorServer {
+	private final ServerSocketChannel server; // The server channel.
+	private final ioLoop[] loops; // The IO threads.
+	private final SecurityKey key;
+	private volatile boolean running = true;
+	private int next = 0; // The loop to give the next client to.
+
+	/**
+	 * Opens the server and starts its threads.
+	 *
+	 * @param port
+	 *            The port.
+	 * @param threads
+	 *            The number of IO threads.
+	 * @param k
+	 *            The security key.
+	 * @throws IOException
+	 *             If the port couldn't be opened.
+	 */
+	SelectorServer(int port, int threads, SecurityKey k) throws IOException {
+		key = k;
+		server = ServerSocketChannel.open();
+		server.bind(new InetSocketAddress(port), 100);
+		loops = new ioLoop[threads];
+		for (int i = 0; i < threads; i++) {
+			loops[i] = new ioLoop(Selector.open());
+			Thread t = new Thread(loops[i], "Network IO " + i);
+			t.setDaemon(true);
+			t.start();
+		}
+		Thread t = new Thread(new acceptor(), "Network Accept");
+		t.setDaemon(true);
+		t.start();
+	}
+
+	/**
+	 * Gets the number of IO threads.
+	 *
+	 * @return The number.
+	 */
+	int getThreads() {
+		return loops.length;
+	}
+
+	/**
+	 * Stops the threads and closes the server. Connections should be shut down
+	 * first.
+	 */
+	void close() {
+		running = false;
+		try {
+			server.close();
+		} catch (IOException e) {
+		}
+		for (ioLoop l : loops) {
+			l.selector.wakeup();
+		}
+	}
+
+	/**
+	 * Accepts clients and hands them to the IO threads in turn.
+	 *
+	 * @author Dillon - Github dg092099
+	 */
+	class acceptor implements Runnable {
+		@Override
+		public void run() {
+			while (running) {
+				try {
+					SocketChannel ch = server.accept();
+					ch.configureBlocking(false);
+					ch.setOption(StandardSocketOptions.TCP_NODELAY, NetworkServer.getTcpNoDelay());
+					ioLoop loop = loops[next];
+					next = (next + 1) % loops.length;
+					SelectorConnector cc = new SelectorConnector(ch, loop, key);
+					Logger.getLogger("Networking").info("Got client, " + cc.getIP());
+					NetworkServer.addConnector(cc);
+					EventSystem.broadcastMessage(new NetworkEvent(NetworkEvent.NetworkMode.CONNECT, cc, null),
+							NetworkEvent.class, key);
+					loop.register(cc);
+				} catch (IOException e) {
+				}
+			}
+		}
+	}
+
+	/**
+	 * An IO thread. It reads from and writes to its clients as they become
+	 * ready.
+	 *
+	 * @author Dillon - Github dg092099
+	 */
+	class ioLoop implements Runnable {
+		private final Selector selector;
+		private final ConcurrentLinkedQueue<SelectorConnector> added = new ConcurrentLinkedQueue<SelectorConnector>(); // New
+		// clients.
+		private final ConcurrentLinkedQueue<SelectorConnector> writes = new ConcurrentLinkedQueue<SelectorConnector>(); // Clients
+		// with something to send.
+
+		ioLoop(Selector selector) {
+			this.selector = selector;
+		}
+
+		/**
+		 * Gives a client to this thread.
+		 *
+		 * @param cc
+		 *            The client.
+		 */
+		void register(SelectorConnector cc) {
+			added.add(cc);
+			selector.wakeup();
+		}
+
+		/**
+		 * Asks this thread to write a client's queued frames.
+		 *
+		 * @param cc
+		 *            The client.
+		 */
+		void requestWrite(SelectorConnector cc) {
+			writes.add(cc);
+			selector.wakeup();
+		}
+
+		@Override
+		public void run() {
+			while (running) {
+				try {
+					selector.select();
+					SelectorConnector cc;
+					while ((cc = added.poll()) != null) {
+						try {
+							cc.setSelectionKey(cc.getChannel().register(selector, SelectionKey.OP_READ, cc));
+						} catch (IOException e) {
+							cc.close();
+						}
+					}
+					while ((cc = writes.poll()) != null) {
+						if (cc.getChannel().isOpen() && cc.hasSelectionKey()) {
+							cc.write();
+						} else if (cc.getChannel().isOpen()) {
+							writes.add(cc); // Not registered yet, try after the next select.
+							break;
+						}
+					}
+					Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+					while (it.hasNext()) {
+						SelectionKey k = it.next();
+						it.remove();
+						cc = (SelectorConnector) k.attachment();
+						if (k.isValid() && k.isReadable()) {
+							cc.read();
+						}
+						if (k.isValid() && k.isWritable()) {
+							cc.write();
+						}
+					}
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+			for (SelectionKey k : selector.keys()) { // Send what's left, like shutdown messages.
+				SelectorConnector cc = (SelectorConnector) k.attachment();
+				if (k.isValid()) {
+					cc.write();
+				}
+				cc.close();
+			}
+			try {
+				selector.close();
+			} catch (IOException e) {
+			}
+		}
+	}
+}
@@ -0,0 +1,157 @@
+package dillon.gameAPI.networking;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds the frames sent to one connection until they are written together.
+ * Everything sent during a tick goes out in one write at the end of the tick,
+ * instead of one write and usually one packet per message. The queue is also
+ * written when it gets too big, or when its oldest frame has waited too long.
+ *
+ * @author Dillon - Github dg092099
+ * @since V2.2.2
+ */
+final class SendQueue {
+	private static final ByteBuffer[] EMPTY = new ByteBuffer[0];
+	static final int TIMER_PERIOD = 5; // How often waiting frames are checked, in
+	// milliseconds.
+	private static ScheduledExecutorService timer; // Writes queues that waited too long.
+	private final ArrayList<ByteBuffer> frames = new ArrayList<ByteBuffer>(); // Waiting
+	// to be written.
+	private int bytes = 0; // The size of the waiting frames.
+	private long oldest = 0; // When the first waiting frame was added.
+	private long messages = 0, batches = 0, sent = 0; // Totals written.
+	private int largest = 0; // The biggest batch written, in bytes.
+
+	/**
+	 * Adds a frame.
+	 *
+	 * @param frame
+	 *            The frame, which mustn't be changed until it is written.
+	 * @param maxBytes
+	 *            How big the queue may get before it should be written.
+	 * @return If the queue should be written now.
+	 */
+	synchronized boolean add(ByteBuffer frame, int maxBytes) {
+		if (frames.isEmpty()) {
+			oldest = System.nanoTime();
+		}
+		frames.add(frame);
+		bytes += frame.remaining();
+		return bytes >= maxBytes;
+	}
+
+	/**
+	 * Takes every waiting frame, to be written as one batch.
+	 *
+	 * @return The frames, in the order they were added.
+	 */
+	synchronized ByteBuffer[] drain() {
+		if (frames.isEmpty()) {
+			return EMPTY;
+		}
+		ByteBuffer[] batch = frames.toArray(new ByteBuffer[frames.size()]);
+		frames.clear();
+		messages += batch.length;
+		batches++;
+		sent += bytes;
+		largest = Math.max(largest, bytes);
+		bytes = 0;
+		return batch;
+	}
+
+	/**
+	 * Counts a frame written without queueing it.
+	 *
+	 * @param frame
+	 *            The frame.
+	 */
+	synchronized void count(ByteBuffer frame) {
+		messages++;
+		batches++;
+		sent += frame.remaining();
+		largest = Math.max(largest, frame.remaining());
+	}
+
+	/**
+	 * Checks if the oldest waiting frame has waited too long.
+	 *
+	 * @param maxNanos
+	 *            How long it may wait.
+	 * @return If it has.
+	 */
+	synchronized boolean isOverdue(long maxNanos) {
+		return !frames.isEmpty() && System.nanoTime() - oldest >= maxNanos;
+	}
+
+	synchronized int getQueuedMessages() {
+		return frames.size();
+	}
+
+	synchronized int getQueuedBytes() {
+		return bytes;
+	}
+
+	synchronized long getMessagesSent() {
+		return messages;
+	}
+
+	synchronized long getBatchesSent() {
+		return batches;
+	}
+
+	synchronized long getBytesSent() {
+		return sent;
+	}
+
+	/**
+	 * Adds the queue's numbers to a debug string.
+	 *
+	 * @param input
+	 *            The debug string so far.
+	 * @return The debug string.
+	 */
+	synchronized String getDebug(String input) {
+		input += String.format("%-13s %-5d\n", "Queued:", frames.size());
+		input += String.format("%-13s %-5d\n", "Queued Bytes:", bytes);
+		input += String.format("%-13s %-5d\n", "Sent:", messages);
+		input += String.format("%-13s %-5d\n", "Batches:", batches);
+		input += String.format("%-13s %-5d\n", "Sent Bytes:", sent);
+		input += String.format("%-13s %-5d\n", "Max Batch:", largest);
+		return input;
+	}
+
+	/**
+	 * Starts the thread that writes queues which waited too long, if it isn't
+	 * running yet.
+	 */
+	static synchronized void startTimer() {
+		if (timer != null) {
+			return;
+		}
+		timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "Network Flush");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		timer.scheduleAtFixedRate(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					NetworkServer.flushOverdue();
+					NetworkConnection.flushOverdue();
+				} catch (RuntimeException e) {
+					e.printStackTrace();
+				}
+			}
+		}, TIMER_PERIOD, TIMER_PERIOD, TimeUnit.MILLISECONDS);
+	}
+}
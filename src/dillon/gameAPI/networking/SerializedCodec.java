@@ -0,0 +1,47 @@
+package dillon.gameAPI.networking;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Sends messages with Java object serialization. Each message gets its own
+ * object stream, so nothing builds up over the life of the connection.
+ *
+ * @author Dillon - Github dg092099
+ * @since V2.2.2
+ */
+class SerializedCodec implements MessageCodec {
+	@Override
+	public void encode(Message msg, OutputStream out) throws IOException {
+		ObjectOutputStream oos = new ObjectOutputStream(out);
+		oos.writeObject(msg);
+		oos.flush();
+	}
+
+	@Override
+	public Message decode(ByteBuffer body) throws IOException {
+		ByteArrayInputStream bytes;
+		if (body.hasArray()) {
+			bytes = new ByteArrayInputStream(body.array(), body.arrayOffset() + body.position(), body.remaining());
+		} else {
+			byte[] b = new byte[body.remaining()];
+			body.duplicate().get(b);
+			bytes = new ByteArrayInputStream(b);
+		}
+		body.position(body.limit());
+		ObjectInputStream ois = new ObjectInputStream(bytes);
+		try {
+			Object o = ois.readObject();
+			if (!(o instanceof Message)) {
+				throw new IOException("The frame doesn't hold a message.");
+			}
+			return (Message) o;
+		} catch (ClassNotFoundException e) {
+			throw new IOException("The frame doesn't hold a message.", e);
+		}
+	}
+}
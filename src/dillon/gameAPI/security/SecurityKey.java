@@ -72,6 +72,20 @@ public class SecurityKey {
 		return desc;
 	}
 
+	/**
+	 * Gets the identifier of the key.
+	 *
+	 * @return The identifier.
+	 */
+	String getId() {
+		return id;
+	}
+
+	@Override
+	public int hashCode() {
+		return id.hashCode();
+	}
+
 	@Override
 	public boolean equals(Object o) {
 		if (!(o instanceof SecurityKey)) {
@@ -5,7 +5,11 @@ import java.security.KeyPairGenerator;
 import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.security.Signature;
-import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
 
 import dillon.gameAPI.errors.EngineSecurityError;
@@ -87,29 +91,152 @@ public class SecuritySystem {
 		if (!active) {
 			return;
 		}
+		if (revokedKeys.contains(k.getId())) {
+			throw new EngineSecurityError("The key given has been revoked.");
+		}
 		if (!verify(k)) {
 			throw new EngineSecurityError("The key given is forged incorrectly.");
 		}
 		if (k.equals(engineKey)) {
 			return;
 		}
+		if (compiledPolicy) {
+			EnumSet<RequestedAction> allowed = policyMatrix.get(k.getId());
+			if (allowed == null) {
+				allowed = compilePolicy(k);
+			}
+			if (!allowed.contains(ra)) {
+				violation(k, ra);
+			}
+			for (engineSecurityHandler h : engineSecurityHandlers) {
+				if (!(h instanceof engineSecurityPolicy) && !h.allow(k, ra)) {
+					violation(k, ra);
+				}
+			}
+			return;
+		}
 		for (engineSecurityHandler h : engineSecurityHandlers) {
 			if (!h.allow(k, ra)) {
-				Logger.getLogger("Security")
-						.severe("Security Violation Key: " + k.getDescription() + " action: " + ra.toString());
-				throw new EngineSecurityError("Security violation: Key: " + k.getKey() + " action: " + ra.toString());
+				violation(k, ra);
+			}
+		}
+	}
+
+	/**
+	 * Reports a security violation.
+	 *
+	 * @param k
+	 *            The key given.
+	 * @param ra
+	 *            The action requested to execute.
+	 */
+	private static void violation(SecurityKey k, RequestedAction ra) {
+		Logger.getLogger("Security")
+				.severe("Security Violation Key: " + k.getDescription() + " action: " + ra.toString());
+		throw new EngineSecurityError("Security violation: Key: " + k.getKey() + " action: " + ra.toString());
+	}
+
+	private static volatile boolean compiledPolicy = false; // If policy handlers are folded into the matrix.
+	private static final ConcurrentHashMap<String, EnumSet<RequestedAction>> policyMatrix = new ConcurrentHashMap<String, EnumSet<RequestedAction>>(); // The
+	// actions each key is allowed, by id.
+	private static final AtomicLong policyGeneration = new AtomicLong(); // Raised before
+	// the matrix is cleared, so a policy worked out before then isn't kept.
+
+	/**
+	 * Asks every engine security policy about every action for the key, and
+	 * remembers the actions that all of them allow.
+	 *
+	 * @param k
+	 *            The key
+	 * @return The allowed actions.
+	 */
+	private static EnumSet<RequestedAction> compilePolicy(SecurityKey k) {
+		long generation = policyGeneration.get();
+		EnumSet<RequestedAction> allowed = EnumSet.allOf(RequestedAction.class);
+		for (engineSecurityHandler h : engineSecurityHandlers) {
+			if (!(h instanceof engineSecurityPolicy)) {
+				continue;
+			}
+			for (RequestedAction a : RequestedAction.values()) {
+				if (allowed.contains(a) && !h.allow(k, a)) {
+					allowed.remove(a);
+				}
 			}
 		}
+		policyMatrix.put(k.getId(), allowed);
+		if (policyGeneration.get() != generation) {
+			// The handlers changed meanwhile and the matrix may have been cleared
+			// before this was put, so don't keep it.
+			policyMatrix.remove(k.getId(), allowed);
+		}
+		return allowed;
+	}
+
+	/**
+	 * Turns the compiled policy mode on or off. While it is on, the answers of
+	 * every engine security policy are worked out once for each key and action,
+	 * and only plain engine security handlers are asked on each check. Must use
+	 * the engine or game key.
+	 *
+	 * @param b
+	 *            If compiled policies should be used.
+	 * @param k
+	 *            The key
+	 * @since V2.2.2
+	 */
+	public static void setCompiledPolicy(boolean b, SecurityKey k) {
+		if ((k.equals(engineKey) || k.equals(gameKey)) && verify(k)) {
+			compiledPolicy = b;
+			clearPolicies();
+		} else {
+			throw new EngineSecurityError("Given key must be the engine key or game key.");
+		}
 	}
 
 	/**
-	 * This method verifies the keys.
+	 * Forgets every compiled policy, including any being worked out now.
+	 */
+	private static void clearPolicies() {
+		policyGeneration.incrementAndGet();
+		policyMatrix.clear();
+	}
+
+	private static final ConcurrentHashMap<String, SecurityKey> verifiedKeys = new ConcurrentHashMap<String, SecurityKey>(); // Keys
+	// whose signature has already been checked, by id.
+	private static final Set<String> revokedKeys = ConcurrentHashMap.newKeySet(); // Ids of revoked keys.
+
+	/**
+	 * This method verifies the keys. The signature of each key is only checked
+	 * the first time it is seen, after that the verified key is remembered
+	 * until it is revoked or the cache is cleared.
 	 *
 	 * @param s
 	 *            The key
 	 * @return Validity.
 	 */
 	private static boolean verify(SecurityKey s) {
+		String id = s.getId();
+		if (revokedKeys.contains(id)) {
+			return false;
+		}
+		if (verifiedKeys.get(id) == s) {
+			return true;
+		}
+		boolean valid = verifySignature(s);
+		if (valid) {
+			verifiedKeys.put(id, s);
+		}
+		return valid;
+	}
+
+	/**
+	 * This method checks the signature of the key.
+	 *
+	 * @param s
+	 *            The key
+	 * @return Validity.
+	 */
+	private static boolean verifySignature(SecurityKey s) {
 		try {
 			byte[] key = s.getKey();
 			byte[] sig = s.getSignature();
@@ -124,6 +251,49 @@ public class SecuritySystem {
 		}
 	}
 
+	/**
+	 * This revokes a security key so that it can no longer be used. Must use the
+	 * engine or game key.
+	 *
+	 * @param revoke
+	 *            The key to revoke.
+	 * @param k
+	 *            The key
+	 * @since V2.2.2
+	 */
+	public static void revokeSecurityKey(SecurityKey revoke, SecurityKey k) {
+		if (revoke == null) {
+			throw new IllegalArgumentException("The key to revoke must not be null.");
+		}
+		if ((k.equals(engineKey) || k.equals(gameKey)) && verify(k)) {
+			if (revoke.equals(engineKey)) {
+				throw new EngineSecurityError("The engine key can't be revoked.");
+			}
+			revokedKeys.add(revoke.getId());
+			verifiedKeys.remove(revoke.getId());
+			policyMatrix.remove(revoke.getId());
+		} else {
+			throw new EngineSecurityError("Given key must be the engine key or game key.");
+		}
+	}
+
+	/**
+	 * This forgets every verified key, so that each one has its signature checked
+	 * again the next time it is used. Must use the engine or game key.
+	 *
+	 * @param k
+	 *            The key
+	 * @since V2.2.2
+	 */
+	public static void clearVerifiedKeys(SecurityKey k) {
+		if ((k.equals(engineKey) || k.equals(gameKey)) && verify(k)) {
+			verifiedKeys.clear();
+			clearPolicies();
+		} else {
+			throw new EngineSecurityError("Given key must be the engine key or game key.");
+		}
+	}
+
 	/**
 	 * The engine security handler, registered engine security handlers would be
 	 * called when a sensitive action is requested to run.
@@ -135,7 +305,20 @@ public class SecuritySystem {
 		public boolean allow(SecurityKey k, RequestedAction a);
 	}
 
-	private final static ArrayList<engineSecurityHandler> engineSecurityHandlers = new ArrayList<engineSecurityHandler>();
+	/**
+	 * An engine security handler whose answer only depends on the key and the
+	 * action. When the compiled policy mode is on, its answers are asked for once
+	 * and kept until the handlers or keys change.
+	 *
+	 * @author Dillon - Github dg092099.github.io
+	 * @since V2.2.2
+	 *
+	 */
+	public static interface engineSecurityPolicy extends engineSecurityHandler {
+	}
+
+	private final static CopyOnWriteArrayList<engineSecurityHandler> engineSecurityHandlers = new CopyOnWriteArrayList<engineSecurityHandler>(); // Copied
+	// when changed, so checks can go through it while a handler is added.
 
 	/**
 	 * This adds a engine security handler to the system. The key must be the engine
@@ -149,6 +332,7 @@ public class SecuritySystem {
 	public static void addHandler(engineSecurityHandler h, SecurityKey k) {
 		if ((k.equals(engineKey) || k.equals(gameKey)) && verify(k)) {
 			engineSecurityHandlers.add(h);
+			clearPolicies();
 			active = true;
 		} else {
 			throw new EngineSecurityError("Given key must be the engine key or game key.");
@@ -213,6 +397,9 @@ public class SecuritySystem {
 		str += gameKey.toString();
 		str += "Game Key Received: " + (gameKeyRetrived ? "Yes" : "No") + "\n";
 		str += "Active: " + (active ? "Yes" : "No") + "\n";
+		str += "Verified Keys: " + verifiedKeys.size() + "\n";
+		str += "Revoked Keys: " + revokedKeys.size() + "\n";
+		str += "Compiled Policy: " + (compiledPolicy ? "Yes" : "No") + "\n";
 		return str;
 	}
 }
@@ -20,6 +20,7 @@ import javax.imageio.ImageIO;
  */
 public class Animation {
 	private final BufferedImage[] frames;
+	private final Sprite[] sprites; // The frames packed in an atlas.
 	private final int animationSpeed;
 	private int loops;
 	private int animationIndex;
@@ -41,6 +42,7 @@ public class Animation {
 	public Animation(BufferedImage[] frames, int animationSpeed, int loops) {
 		if (frames.length < 2) {
 			this.frames = null;
+			this.sprites = null;
 			this.animationSpeed = 0;
 			this.animationIndex = 0;
 			ticksTaken = 0;
@@ -52,6 +54,7 @@ public class Animation {
 			throw new IllegalArgumentException("Loops must not be 0. Use 1 to make the animation play once.");
 		}
 		this.frames = frames;
+		this.sprites = SpriteAtlas.pack(frames);
 		this.animationSpeed = animationSpeed;
 		animationIndex = 0;
 		ticksTaken = 0;
@@ -91,6 +94,16 @@ public class Animation {
 		return frames[animationIndex];
 	}
 
+	/**
+	 * Get the current animation frame as a sprite, which is quicker to draw.
+	 *
+	 * @return The frame.
+	 * @since V2.2.2
+	 */
+	public Sprite getCurrentSprite() {
+		return sprites[animationIndex];
+	}
+
 	/**
 	 * Gets if the animation is at the end. It will not progress further.
 	 *
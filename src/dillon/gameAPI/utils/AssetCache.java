@@ -0,0 +1,229 @@
+package dillon.gameAPI.utils;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import dillon.gameAPI.security.RequestedAction;
+import dillon.gameAPI.security.SecurityKey;
+import dillon.gameAPI.security.SecuritySystem;
+
+/**
+ * Keeps decoded assets, like images, so that they don't have to be loaded again
+ * when they are used again. Assets are found by a hash of what they were made
+ * from, so the same file in two maps is only kept once. When the cache is
+ * bigger than its budget, the assets used longest ago are thrown out.
+ *
+ * @author Dillon - Github dg092099
+ * @since V2.2.2
+ */
+public class AssetCache {
+	private static final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(64, 0.75f, true); // By
+	// key, the least recently used first.
+	private static long budget = 64L * 1024 * 1024; // The most bytes to keep.
+	private static long used = 0; // The bytes being kept.
+	private static long hits = 0, misses = 0;
+
+	/**
+	 * An asset and about how much memory it uses.
+	 */
+	private static class Entry {
+		final Object value;
+		final long size;
+
+		Entry(Object value, long size) {
+			this.value = value;
+			this.size = size;
+		}
+	}
+
+	private AssetCache() {
+	}
+
+	/**
+	 * Makes a key from the contents of a file.
+	 *
+	 * @param parts
+	 *            The contents.
+	 * @return The SHA-256 hash in hex.
+	 */
+	public static String hash(byte[]... parts) {
+		try {
+			MessageDigest md = MessageDigest.getInstance("SHA-256");
+			for (byte[] b : parts) {
+				md.update(b);
+			}
+			byte[] digest = md.digest();
+			StringBuilder sb = new StringBuilder(digest.length * 2);
+			for (byte b : digest) {
+				sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+				sb.append(Character.forDigit(b & 0xF, 16));
+			}
+			return sb.toString();
+		} catch (NoSuchAlgorithmException e) {
+			e.printStackTrace();
+			throw new IllegalStateException("SHA-256 is missing.");
+		}
+	}
+
+	/**
+	 * Makes a key from several strings, such as other hashes.
+	 *
+	 * @param parts
+	 *            The strings.
+	 * @return The SHA-256 hash in hex.
+	 */
+	public static String hash(String... parts) {
+		byte[][] bytes = new byte[parts.length * 2][];
+		for (int i = 0; i < parts.length; i++) {
+			bytes[i * 2] = parts[i].getBytes(StandardCharsets.UTF_8);
+			bytes[i * 2 + 1] = new byte[] { 0 }; // Keeps "ab", "c" apart from "a", "bc".
+		}
+		return hash(bytes);
+	}
+
+	/**
+	 * Gets an asset.
+	 *
+	 * @param key
+	 *            The key.
+	 * @return The asset, or null if it isn't kept.
+	 */
+	public static synchronized Object get(String key) {
+		Entry e = entries.get(key);
+		if (e == null) {
+			misses++;
+			return null;
+		}
+		hits++;
+		return e.value;
+	}
+
+	/**
+	 * Gets an image.
+	 *
+	 * @param key
+	 *            The key.
+	 * @return The image, or null if it isn't kept.
+	 */
+	public static BufferedImage getImage(String key) {
+		Object value = get(key);
+		return value instanceof BufferedImage ? (BufferedImage) value : null;
+	}
+
+	/**
+	 * Keeps an asset. Anything kept must not be changed afterwards, since it is
+	 * shared with whatever asks for it next.
+	 *
+	 * @param key
+	 *            The key.
+	 * @param value
+	 *            The asset.
+	 * @param size
+	 *            About how many bytes it uses.
+	 */
+	public static synchronized void put(String key, Object value, long size) {
+		if (key == null || value == null) {
+			throw new IllegalArgumentException("The key and asset must not be null.");
+		}
+		Entry old = entries.remove(key);
+		if (old != null) {
+			used -= old.size;
+		}
+		if (size > budget) {
+			return; // It would push out everything else.
+		}
+		entries.put(key, new Entry(value, size));
+		used += size;
+		trim();
+	}
+
+	/**
+	 * Keeps an image.
+	 *
+	 * @param key
+	 *            The key.
+	 * @param img
+	 *            The image.
+	 */
+	public static void putImage(String key, BufferedImage img) {
+		put(key, img, sizeOf(img));
+	}
+
+	/**
+	 * Works out about how many bytes an image uses.
+	 *
+	 * @param img
+	 *            The image.
+	 * @return The bytes.
+	 */
+	public static long sizeOf(BufferedImage img) {
+		DataBuffer db = img.getRaster().getDataBuffer();
+		return (long) db.getSize() * db.getNumBanks() * Math.max(1, DataBuffer.getDataTypeSize(db.getDataType()) / 8);
+	}
+
+	/**
+	 * Sets how many bytes the cache may keep.
+	 *
+	 * @param bytes
+	 *            The budget, 0 to keep nothing.
+	 * @param k
+	 *            The security key.
+	 */
+	public static synchronized void setMemoryBudget(long bytes, SecurityKey k) {
+		SecuritySystem.checkPermission(k, RequestedAction.SET_CACHE_BUDGET);
+		if (bytes < 0) {
+			throw new IllegalArgumentException("The budget must not be negative.");
+		}
+		budget = bytes;
+		trim();
+	}
+
+	/**
+	 * Gets how many bytes the cache may keep.
+	 *
+	 * @return The budget.
+	 */
+	public static synchronized long getMemoryBudget() {
+		return budget;
+	}
+
+	/**
+	 * Throws out every asset.
+	 *
+	 * @param k
+	 *            The security key.
+	 */
+	public static synchronized void clear(SecurityKey k) {
+		SecuritySystem.checkPermission(k, RequestedAction.SET_CACHE_BUDGET);
+		entries.clear();
+		used = 0;
+	}
+
+	/**
+	 * Throws out the assets used longest ago until the cache fits its budget.
+	 */
+	private static void trim() {
+		Iterator<Entry> it = entries.values().iterator();
+		while (used > budget && it.hasNext()) {
+			used -= it.next().size;
+			it.remove();
+		}
+	}
+
+	public static synchronized String getDebug() {
+		String data = "\n\ndillon.gameAPI.utils.AssetCache Debug:\n";
+		data += String.format("%-15s %-7s\n", "Key", "Value");
+		data += String.format("%-15s %-7s\n", "---", "-----");
+		data += String.format("%-15s %-7d\n", "Assets:", entries.size());
+		data += String.format("%-15s %-7d\n", "Used:", used);
+		data += String.format("%-15s %-7d\n", "Budget:", budget);
+		data += String.format("%-15s %-7d\n", "Hits:", hits);
+		data += String.format("%-15s %-7d\n", "Misses:", misses);
+		return data;
+	}
+}
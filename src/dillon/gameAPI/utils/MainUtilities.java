@@ -126,6 +126,7 @@ public class MainUtilities {
 			throw new IllegalArgumentException(
 					"The given sheet is not compatable with the given tile width and height.");
 		}
+		img = SpriteAtlas.toCompatible(img); // The pieces share its format.
 		ArrayList<Image> images = new ArrayList<Image>();
 		int xTiles = img.getWidth(null) / x;
 		int yTiles = img.getHeight(null) / y;
@@ -0,0 +1,84 @@
+package dillon.gameAPI.utils;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * A picture kept in a shared atlas made by SpriteAtlas. Drawing a sprite copies
+ * its part of the atlas, so the atlas stays in video memory.
+ *
+ * @author Dillon - Github dg092099
+ * @since V2.2.2
+ */
+public final class Sprite {
+	private final BufferedImage page; // The atlas the sprite is in.
+	private final int x, y, width, height; // Where it is in the atlas.
+	private BufferedImage image; // The sprite as its own image, made when asked for.
+
+	/**
+	 * Creates a sprite.
+	 *
+	 * @param page
+	 *            The atlas.
+	 * @param x
+	 *            The x position in the atlas.
+	 * @param y
+	 *            The y position in the atlas.
+	 * @param width
+	 *            The width.
+	 * @param height
+	 *            The height.
+	 */
+	Sprite(BufferedImage page, int x, int y, int width, int height) {
+		this.page = page;
+		this.x = x;
+		this.y = y;
+		this.width = width;
+		this.height = height;
+	}
+
+	/**
+	 * Draws the sprite.
+	 *
+	 * @param g
+	 *            The graphics.
+	 * @param dx
+	 *            The x position to draw at.
+	 * @param dy
+	 *            The y position to draw at.
+	 */
+	public void draw(Graphics2D g, int dx, int dy) {
+		g.drawImage(page, dx, dy, dx + width, dy + height, x, y, x + width, y + height, null);
+	}
+
+	/**
+	 * Gets the width.
+	 *
+	 * @return The width.
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Gets the height.
+	 *
+	 * @return The height.
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Gets the sprite as an image. The image shares its pixels with the atlas, so
+	 * it must not be drawn on.
+	 *
+	 * @return The image.
+	 */
+	public synchronized BufferedImage getImage() {
+		if (image == null) {
+			image = page.getSubimage(x, y, width, height);
+		}
+		return image;
+	}
+}
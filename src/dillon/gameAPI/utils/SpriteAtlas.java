@@ -0,0 +1,211 @@
+package dillon.gameAPI.utils;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.Image;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.WeakHashMap;
+
+/**
+ * This converts loaded images into the format the screen uses, and packs small
+ * ones into shared atlases. Images in other formats are drawn by slow software
+ * loops, while a compatible atlas can be kept in video memory and drawn from
+ * directly. Only the atlas being filled is kept here, the others are kept by
+ * their sprites and freed once none of them are used.
+ *
+ * @author Dillon - Github dg092099
+ * @since V2.2.2
+ */
+public class SpriteAtlas {
+	public static final int PAGE_SIZE = 1024; // The width and height of an atlas.
+	public static final int MAX_PACKED = 256; // Bigger images get their own atlas.
+	private static final int PADDING = 1; // Space between sprites, so scaling doesn't bleed.
+	private static GraphicsConfiguration config; // The screen's configuration.
+	private static boolean configChecked = false;
+	private static final ArrayList<WeakReference<BufferedImage>> pages = new ArrayList<WeakReference<BufferedImage>>(); // The
+	// atlases, for counting them.
+	private static BufferedImage page; // The atlas being filled.
+	private static int shelfX, shelfY, shelfHeight; // Where the next sprite goes in it.
+	private static final WeakHashMap<Image, Sprite> packed = new WeakHashMap<Image, Sprite>(); // Sprites
+	// by the image they were made from.
+
+	private SpriteAtlas() {
+	}
+
+	/**
+	 * Gets the screen's configuration.
+	 *
+	 * @return The configuration, or null if there is no screen.
+	 */
+	private static synchronized GraphicsConfiguration getConfig() {
+		if (!configChecked) {
+			configChecked = true;
+			if (!GraphicsEnvironment.isHeadless()) {
+				config = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+						.getDefaultConfiguration();
+			}
+		}
+		return config;
+	}
+
+	/**
+	 * Creates an empty image that the screen can draw quickly.
+	 *
+	 * @param width
+	 *            The width.
+	 * @param height
+	 *            The height.
+	 * @return The image.
+	 */
+	public static BufferedImage createCompatible(int width, int height) {
+		GraphicsConfiguration gc = getConfig();
+		if (gc == null) {
+			return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+		}
+		return gc.createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+	}
+
+	/**
+	 * Checks if the image is already in a format that the screen can draw
+	 * quickly.
+	 *
+	 * @param img
+	 *            The image.
+	 * @return If it is.
+	 */
+	public static boolean isCompatible(BufferedImage img) {
+		GraphicsConfiguration gc = getConfig();
+		if (gc == null) {
+			return img.getType() == BufferedImage.TYPE_INT_ARGB_PRE;
+		}
+		return img.getColorModel().equals(gc.getColorModel(img.getTransparency()));
+	}
+
+	/**
+	 * Copies the image into a format that the screen can draw quickly. If it is
+	 * already in one, the image itself is returned.
+	 *
+	 * @param img
+	 *            The image.
+	 * @return The compatible image.
+	 */
+	public static BufferedImage toCompatible(Image img) {
+		if (img == null) {
+			throw new IllegalArgumentException("The image must not be null.");
+		}
+		if (img instanceof BufferedImage && isCompatible((BufferedImage) img)) {
+			return (BufferedImage) img;
+		}
+		BufferedImage copy = createCompatible(Math.max(1, img.getWidth(null)), Math.max(1, img.getHeight(null)));
+		Graphics2D g = copy.createGraphics();
+		g.setComposite(AlphaComposite.Src);
+		g.drawImage(img, 0, 0, null);
+		g.dispose();
+		return copy;
+	}
+
+	/**
+	 * Puts the image in an atlas. Packing the same image again gives back the
+	 * same sprite. Images bigger than MAX_PACKED are only made compatible. The
+	 * sprite is a copy of the image as it is now, drawing on the image later
+	 * doesn't change it.
+	 *
+	 * @param img
+	 *            The image.
+	 * @return The sprite.
+	 */
+	public static synchronized Sprite pack(Image img) {
+		if (img == null) {
+			throw new IllegalArgumentException("The image must not be null.");
+		}
+		Sprite s = packed.get(img);
+		if (s != null) {
+			return s;
+		}
+		int width = Math.max(1, img.getWidth(null));
+		int height = Math.max(1, img.getHeight(null));
+		if (width > MAX_PACKED || height > MAX_PACKED) {
+			// Not remembered, the sprite may hold the image and keep it from being freed.
+			return new Sprite(toCompatible(img), 0, 0, width, height);
+		}
+		if (page == null || shelfX + width > PAGE_SIZE) { // Start a new shelf.
+			shelfX = 0;
+			shelfY += shelfHeight + PADDING;
+			shelfHeight = 0;
+		}
+		if (page == null || shelfY + height > PAGE_SIZE) { // Start a new atlas.
+			page = createCompatible(PAGE_SIZE, PAGE_SIZE);
+			prune();
+			pages.add(new WeakReference<BufferedImage>(page));
+			shelfX = 0;
+			shelfY = 0;
+			shelfHeight = 0;
+		}
+		Graphics2D g = page.createGraphics();
+		g.setComposite(AlphaComposite.Src);
+		g.drawImage(img, shelfX, shelfY, null);
+		g.dispose();
+		s = new Sprite(page, shelfX, shelfY, width, height);
+		shelfX += width + PADDING;
+		shelfHeight = Math.max(shelfHeight, height);
+		packed.put(img, s);
+		return s;
+	}
+
+	/**
+	 * Packs every image.
+	 *
+	 * @param imgs
+	 *            The images.
+	 * @return The sprites.
+	 */
+	public static Sprite[] pack(Image[] imgs) {
+		Sprite[] sprites = new Sprite[imgs.length];
+		for (int i = 0; i < imgs.length; i++) {
+			sprites[i] = pack(imgs[i]);
+		}
+		return sprites;
+	}
+
+	/**
+	 * Forgets the sprites made so far and starts a new atlas. Sprites already
+	 * made keep working.
+	 */
+	public static synchronized void clear() {
+		pages.clear();
+		packed.clear();
+		page = null;
+		shelfX = 0;
+		shelfY = 0;
+		shelfHeight = 0;
+	}
+
+	/**
+	 * Forgets the atlases that have been freed.
+	 */
+	private static void prune() {
+		Iterator<WeakReference<BufferedImage>> it = pages.iterator();
+		while (it.hasNext()) {
+			if (it.next().get() == null) {
+				it.remove();
+			}
+		}
+	}
+
+	public static synchronized String getDebug() {
+		prune();
+		String data = "\n\ndillon.gameAPI.utils.SpriteAtlas Debug:\n";
+		data += String.format("%-15s %-7s\n", "Key", "Value");
+		data += String.format("%-15s %-7s\n", "---", "-----");
+		data += String.format("%-15s %-7d\n", "Atlases:", pages.size());
+		data += String.format("%-15s %-7d\n", "Sprites:", packed.size());
+		data += String.format("%-15s %-7s\n", "Accelerated:", getConfig() != null ? "Yes" : "No");
+		return data;
+	}
+}